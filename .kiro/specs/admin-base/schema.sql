@@ -66,11 +66,19 @@ CREATE TABLE sys_role_permission (
   KEY idx_sys_role_permission_permission_id (permission_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+CREATE TABLE sys_rbac_version (
+  id TINYINT NOT NULL COMMENT 'always 1',
+  version BIGINT NOT NULL DEFAULT 0 COMMENT 'bumped by every RBAC change; shared by all nodes',
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='single-row RBAC version for permission caches';
+
 CREATE TABLE sys_file (
   id BIGINT NOT NULL,
   original_name VARCHAR(255) NOT NULL,
   stored_name VARCHAR(255) NOT NULL,
-  path VARCHAR(512) NOT NULL COMMENT 'relative path on disk',
+  path VARCHAR(512) NOT NULL COMMENT 'relative path on disk (shared by files with the same content)',
+  object_id BIGINT DEFAULT NULL COMMENT 'sys_file_object.id, NULL for files stored before deduplication',
   size BIGINT NOT NULL,
   content_type VARCHAR(128) DEFAULT NULL,
   visibility VARCHAR(16) NOT NULL DEFAULT 'PRIVATE' COMMENT 'PUBLIC/PRIVATE',
@@ -78,11 +86,24 @@ CREATE TABLE sys_file (
   deleted TINYINT NOT NULL DEFAULT 0 COMMENT '0-normal 1-deleted',
   created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
-  UNIQUE KEY uk_sys_file_path (path),
+  KEY idx_sys_file_path (path),
+  KEY idx_sys_file_object_id (object_id),
   KEY idx_sys_file_user_id (user_id),
   KEY idx_sys_file_visibility (visibility)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+CREATE TABLE sys_file_object (
+  id BIGINT NOT NULL,
+  sha256 CHAR(64) NOT NULL COMMENT 'hex SHA-256 of the content',
+  size BIGINT NOT NULL,
+  path VARCHAR(512) NOT NULL COMMENT 'relative path on disk',
+  ref_count INT NOT NULL DEFAULT 0 COMMENT 'live sys_file rows pointing here',
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_sys_file_object_sha256 (sha256),
+  UNIQUE KEY uk_sys_file_object_path (path)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='content-addressed stored files';
+
 CREATE TABLE sys_notification (
   id BIGINT NOT NULL,
   user_id BIGINT NOT NULL,
@@ -93,9 +114,40 @@ CREATE TABLE sys_notification (
   created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
   KEY idx_sys_notification_user_created (user_id, created_at),
-  KEY idx_sys_notification_user_read (user_id, is_read)
+  KEY idx_sys_notification_user_read (user_id, is_read),
+  KEY idx_sys_notification_user_id (user_id, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+CREATE TABLE sys_announcement (
+  id BIGINT NOT NULL,
+  title VARCHAR(255) NOT NULL,
+  content TEXT NOT NULL,
+  created_by BIGINT DEFAULT NULL COMMENT 'sys_user.id',
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  KEY idx_sys_announcement_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='broadcast notification, stored once for all users';
+
+CREATE TABLE sys_announcement_read (
+  id BIGINT NOT NULL,
+  announcement_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_sys_announcement_read (announcement_id, user_id),
+  KEY idx_sys_announcement_read_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE sys_ws_event (
+  id BIGINT NOT NULL,
+  user_id BIGINT DEFAULT NULL COMMENT 'target user, NULL = broadcast',
+  topic VARCHAR(32) DEFAULT NULL COMMENT 'target topic subscribers (e.g. stats), NULL = user / broadcast',
+  payload TEXT NOT NULL,
+  created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (id),
+  KEY idx_sys_ws_event_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='short-lived cross-node WebSocket delivery events';
+
 CREATE TABLE sys_message (
   id BIGINT NOT NULL,
   user_id BIGINT NOT NULL,
@@ -139,6 +191,7 @@ CREATE TABLE biz_activity (
   max_participants INT DEFAULT NULL,
   donation_target DECIMAL(12,2) DEFAULT NULL,
   donated_amount DECIMAL(12,2) NOT NULL DEFAULT 0,
+  signup_count INT DEFAULT NULL COMMENT 'SIGNED + CHECKED_IN seats; NULL until seeded by the first signup',
   enabled TINYINT NOT NULL DEFAULT 1 COMMENT '0-disabled 1-enabled',
   deleted TINYINT NOT NULL DEFAULT 0 COMMENT '0-normal 1-deleted',
   created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -158,11 +211,20 @@ CREATE TABLE biz_activity_signup (
   checked_in_at DATETIME DEFAULT NULL,
   PRIMARY KEY (id),
   UNIQUE KEY uk_biz_activity_signup (activity_id, user_id),
-  KEY idx_biz_activity_signup_activity_id (activity_id),
+  KEY idx_biz_activity_signup_activity_id (activity_id, signed_at),
   KEY idx_biz_activity_signup_user_id (user_id),
   KEY idx_biz_activity_signup_signed_at (signed_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+CREATE TABLE biz_activity_signup_hourly (
+  activity_id BIGINT NOT NULL,
+  bucket_hour DATETIME NOT NULL COMMENT 'hour of signed_at',
+  signups INT NOT NULL DEFAULT 0 COMMENT 'active signups (SIGNED + CHECKED_IN) signed in this hour',
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (activity_id, bucket_hour),
+  KEY idx_biz_activity_signup_hourly_bucket_hour (bucket_hour)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='hourly signup buckets, maintained on signup / cancel';
+
 CREATE TABLE biz_activity_donation (
   id BIGINT NOT NULL,
   activity_id BIGINT NOT NULL,
@@ -171,11 +233,29 @@ CREATE TABLE biz_activity_donation (
   remark VARCHAR(255) DEFAULT NULL,
   created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
-  KEY idx_biz_activity_donation_activity_id (activity_id),
+  KEY idx_biz_activity_donation_activity_id (activity_id, created_at),
   KEY idx_biz_activity_donation_user_id (user_id),
   KEY idx_biz_activity_donation_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+CREATE TABLE biz_income_daily (
+  stat_date DATE NOT NULL COMMENT 'date of the donations'' created_at',
+  stripe_no INT NOT NULL DEFAULT 0 COMMENT '0..(income-stripes-1)',
+  amount DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT 'activity + crowdfunding donations of the day added to this stripe',
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (stat_date, stripe_no)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='daily income rollup, striped, maintained per donation';
+
+CREATE TABLE biz_activity_donation_stripe (
+  id BIGINT NOT NULL,
+  activity_id BIGINT NOT NULL,
+  stripe_no INT NOT NULL COMMENT '0..(stripes-1)',
+  amount DECIMAL(12,2) NOT NULL DEFAULT 0 COMMENT 'not yet compacted into biz_activity.donated_amount',
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_biz_activity_donation_stripe (activity_id, stripe_no)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
 CREATE TABLE biz_activity_favorite (
   id BIGINT NOT NULL,
   activity_id BIGINT NOT NULL,
@@ -183,7 +263,7 @@ CREATE TABLE biz_activity_favorite (
   created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
   UNIQUE KEY uk_biz_activity_favorite (activity_id, user_id),
-  KEY idx_biz_activity_favorite_activity_id (activity_id),
+  KEY idx_biz_activity_favorite_activity_id (activity_id, created_at),
   KEY idx_biz_activity_favorite_user_id (user_id),
   KEY idx_biz_activity_favorite_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -218,7 +298,7 @@ CREATE TABLE biz_crowdfunding_donation (
   remark VARCHAR(255) DEFAULT NULL,
   created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
-  KEY idx_biz_cf_donation_project_id (project_id),
+  KEY idx_biz_cf_donation_project_id (project_id, created_at),
   KEY idx_biz_cf_donation_user_id (user_id),
   KEY idx_biz_cf_donation_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -57,6 +57,7 @@ INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (162, '
 INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (163, 'activityDonation:list', '活动捐赠记录', '查看活动捐赠记录', 0);
 INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (164, 'activityFavorite:list', '活动收藏记录', '查看活动收藏记录', 0);
 INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (165, 'stats:view', '数据统计', '查看统计数据', 0);
+INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (166, 'stats:manage', '统计维护', '重建统计汇总数据', 0);
 
 INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (170, 'crowdfunding:list', '众筹项目列表', '查看众筹项目列表', 0);
 INSERT INTO sys_permission (id, code, name, description, deleted) VALUES (171, 'crowdfunding:manage', '众筹项目管理', '管理众筹项目（编辑/删除）', 0);
@@ -97,6 +98,7 @@ INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2062, 10, 1
 INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2063, 10, 163);
 INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2064, 10, 164);
 INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2065, 10, 165);
+INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2066, 10, 166);
 
 INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2070, 10, 170);
 INSERT INTO sys_role_permission (id, role_id, permission_id) VALUES (2071, 10, 171);
@@ -0,0 +1,101 @@
+package com.example.admin.security;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The shared structures of the authentication hot path under concurrent requests: {@link SecurityHotPathBenchmark}
+ * gives each thread its own provider and cache, here all threads share one (as all request threads of a node do).
+ * <p>
+ * Compare the ops/sec of {@code @Threads(8)} with the single-threaded run of the same method; run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.include=SecurityContentionBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityContentionBenchmark {
+
+    /** One verified-token cache for all threads. */
+    @State(Scope.Benchmark)
+    public static class TokenCache {
+
+        /** Distinct tokens replayed; 8192 is twice the cache, so misses keep writers evicting. */
+        @Param({"1", "8192"})
+        public int tokens;
+
+        JwtTokenProvider jwtTokenProvider;
+        String[] pool;
+
+        @Setup
+        public void setUp() {
+            jwtTokenProvider = SecurityHotPathBenchmark.newTokenProvider(4096);
+            pool = new String[tokens];
+            for (int i = 0; i < tokens; i++) {
+                pool[i] = jwtTokenProvider.generateAccessToken(i + 1L, "user" + i, List.of("user"));
+            }
+        }
+    }
+
+    /** Each thread walks the token pool from its own position. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = (int) (Thread.currentThread().getId() * 7919);
+    }
+
+    /** One permission cache for all threads. */
+    @State(Scope.Benchmark)
+    public static class RbacVersion {
+
+        /** 0 re-reads the version under the cache's monitor on every call; 1000 is the default interval. */
+        @Param({"0", "1000"})
+        public long versionCheckMs;
+
+        PermissionCache permissionCache;
+
+        @Setup
+        public void setUp() {
+            permissionCache = new PermissionCache(new SecurityHotPathBenchmark.FixedRbacVersion(), 10000, versionCheckMs);
+        }
+    }
+
+    @Benchmark
+    public Object verifyAccessToken(TokenCache cache, Cursor cursor) {
+        return cache.jwtTokenProvider.verifyAccessToken(next(cache, cursor));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object verifyAccessTokenContended(TokenCache cache, Cursor cursor) {
+        return cache.jwtTokenProvider.verifyAccessToken(next(cache, cursor));
+    }
+
+    @Benchmark
+    public long rbacVersion(RbacVersion rbac) {
+        return rbac.permissionCache.currentVersion();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long rbacVersionContended(RbacVersion rbac) {
+        return rbac.permissionCache.currentVersion();
+    }
+
+    private static String next(TokenCache cache, Cursor cursor) {
+        int i = Math.floorMod(cursor.next++, cache.pool.length);
+        return cache.pool[i];
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.admin.security;
+
+import com.example.admin.dto.permission.CreatePermissionRequest;
+import com.example.admin.dto.permission.PermissionDto;
+import com.example.admin.dto.permission.UpdatePermissionRequest;
+import com.example.admin.mapper.SysRbacVersionMapper;
+import com.example.admin.service.PermissionService;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Per-request authentication overhead: token parsing, the JWT filter and the permission aspect.
+ * <p>
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; the default {@code -prof gc} reports allocation per operation
+ * (gc.alloc.rate.norm) next to ops/sec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityHotPathBenchmark {
+
+    private static final String SECRET = "01234567890123456789012345678901";
+
+    /** Size of the verified-token cache; 0 measures full HMAC verification on every call. */
+    @Param({"0", "4096"})
+    public int verifiedCacheSize;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private JwtAuthenticationFilter filter;
+    private PermissionAspect aspect;
+    private RequiresPermission requiresPermission;
+    private ProceedingJoinPoint joinPoint;
+    private UsernamePasswordAuthenticationToken authentication;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        jwtTokenProvider = newTokenProvider(verifiedCacheSize);
+        token = jwtTokenProvider.generateAccessToken(1L, "admin", List.of("admin"));
+
+        PermissionService permissionService = new StubPermissionService(Set.of("user:list", "user:create", "role:list"));
+        PermissionCache permissionCache = new PermissionCache(new FixedRbacVersion(), 10000, 1000);
+        filter = new JwtAuthenticationFilter(
+                jwtTokenProvider,
+                new PermissionBitmapCodec(permissionService, permissionCache, false)
+        );
+        aspect = new PermissionAspect(permissionService, permissionCache);
+
+        requiresPermission = SecurityHotPathBenchmark.class
+                .getDeclaredMethod("guarded")
+                .getAnnotation(RequiresPermission.class);
+        joinPoint = (ProceedingJoinPoint) Proxy.newProxyInstance(
+                ProceedingJoinPoint.class.getClassLoader(),
+                new Class<?>[] {ProceedingJoinPoint.class},
+                (proxy, method, args) -> "proceed".equals(method.getName()) ? Boolean.TRUE : null
+        );
+        authentication = new UsernamePasswordAuthenticationToken(
+                new UserPrincipal(1L, "admin", List.of("admin")), null, List.of());
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object parseToken() {
+        return jwtTokenProvider.parseToken(token);
+    }
+
+    @Benchmark
+    public Object verifyAccessToken() {
+        return jwtTokenProvider.verifyAccessToken(token);
+    }
+
+    @Benchmark
+    public void filter(Blackhole bh) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object permissionAspect() throws Throwable {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return aspect.around(joinPoint, requiresPermission);
+    }
+
+    @RequiresPermission("user:list")
+    private void guarded() {
+        // Annotation holder only.
+    }
+
+    static JwtTokenProvider newTokenProvider(int verifiedCacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "secret", SECRET);
+        ReflectionTestUtils.setField(provider, "issuer", "bench");
+        ReflectionTestUtils.setField(provider, "accessTokenTtlSeconds", 86400L);
+        ReflectionTestUtils.setField(provider, "refreshTokenTtlSeconds", 86400L);
+        ReflectionTestUtils.setField(provider, "verifiedCacheSize", verifiedCacheSize);
+        provider.init();
+        return provider;
+    }
+
+    /** Read side only; the writes are no-ops so a stray call does not abort a run. */
+    private record StubPermissionService(Set<String> permissions) implements PermissionService {
+
+        @Override
+        public Set<String> getPermissionsByUserId(Long userId) {
+            return permissions;
+        }
+
+        @Override
+        public Map<Long, Set<String>> getPermissionsByUserIds(Collection<Long> userIds) {
+            return Map.of();
+        }
+
+        @Override
+        public List<PermissionDto> listAll() {
+            return List.of();
+        }
+
+        @Override
+        public PermissionDto create(CreatePermissionRequest request) {
+            return null;
+        }
+
+        @Override
+        public PermissionDto update(Long id, UpdatePermissionRequest request) {
+            return null;
+        }
+
+        @Override
+        public void delete(Long id) {
+            // no-op
+        }
+    }
+
+    /** RBAC never changes during the benchmark. */
+    static final class FixedRbacVersion implements SysRbacVersionMapper {
+
+        @Override
+        public Long current() {
+            return 1L;
+        }
+
+        @Override
+        public int bump() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.admin.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size-bounded, optionally expiring cache that readers never lock.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}; reads only stamp the entry's last access (at most once per
+ * {@value #ACCESS_GRANULARITY_MS} ms, so hot entries do not bounce a cache line between cores). When the total
+ * weight goes over {@code maxWeight}, the one writer that wins {@code evictionLock} drops expired entries and then the
+ * least recently used ones until the cache is back to 7/8 of the bound; other writers carry on meanwhile, so the
+ * bound is approximate. LRU order is likewise approximate.
+ */
+public final class BoundedCache<K, V> {
+
+    private static final long ACCESS_GRANULARITY_MS = 1000;
+
+    private final ConcurrentHashMap<K, Node<V>> map = new ConcurrentHashMap<>();
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+    private final AtomicLong weight = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * @param maxWeight bound on the summed weight of the entries (0 disables the cache)
+     * @param ttlMillis how long an entry lives after it is put (0 for no expiry)
+     * @param weigher   weight of a value, e.g. 1 to bound the entry count or the length to bound bytes
+     */
+    public BoundedCache(long maxWeight, long ttlMillis, ToLongFunction<V> weigher) {
+        this.maxWeight = Math.max(0, maxWeight);
+        this.ttlNanos = ttlMillis <= 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.weigher = weigher;
+    }
+
+    /** A cache bounded by entry count. */
+    public static <K, V> BoundedCache<K, V> ofEntries(long maxEntries, long ttlMillis) {
+        return new BoundedCache<>(maxEntries, ttlMillis, v -> 1);
+    }
+
+    public V get(K key) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (expired(node, now)) {
+            unlink(key, node);
+            return null;
+        }
+        if (now - node.lastAccess > TimeUnit.MILLISECONDS.toNanos(ACCESS_GRANULARITY_MS)) {
+            node.lastAccess = now;
+        }
+        return node.value;
+    }
+
+    /**
+     * Add or replace an entry; values heavier than the whole bound are not cached.
+     */
+    public void put(K key, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > maxWeight) {
+            return;
+        }
+        Node<V> node = new Node<>(value, w, System.nanoTime());
+        Node<V> previous = map.put(key, node);
+        if (weight.addAndGet(w - (previous == null ? 0 : previous.weight)) > maxWeight) {
+            evict();
+        }
+    }
+
+    public void remove(K key) {
+        Node<V> node = map.remove(key);
+        if (node != null) {
+            weight.addAndGet(-node.weight);
+        }
+    }
+
+    /**
+     * Drop every entry whose key matches; a full scan, meant for rare invalidations.
+     */
+    public void removeIf(Predicate<K> keyFilter) {
+        for (Map.Entry<K, Node<V>> entry : map.entrySet()) {
+            if (keyFilter.test(entry.getKey())) {
+                unlink(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    /** Summed weight of the entries. */
+    public long weight() {
+        return weight.get();
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (weight.get() <= maxWeight) {
+                return;
+            }
+            long target = maxWeight - maxWeight / 8;
+            long now = System.nanoTime();
+            // Access stamps are copied first (relative to now, as nanoTime may wrap): readers keep moving them while
+            // the list is sorted.
+            List<Candidate<K, V>> byAccess = new ArrayList<>(map.size());
+            for (Map.Entry<K, Node<V>> entry : map.entrySet()) {
+                Node<V> node = entry.getValue();
+                if (expired(node, now)) {
+                    unlink(entry.getKey(), node);
+                } else {
+                    byAccess.add(new Candidate<>(entry.getKey(), node, node.lastAccess - now));
+                }
+            }
+            byAccess.sort(Comparator.comparingLong(Candidate::accessed));
+            for (Candidate<K, V> candidate : byAccess) {
+                if (weight.get() <= target) {
+                    break;
+                }
+                unlink(candidate.key(), candidate.node());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean expired(Node<V> node, long now) {
+        return ttlNanos > 0 && now - node.createdAt > ttlNanos;
+    }
+
+    /** Removes the mapping only if it still holds this node, so a concurrent replacement survives. */
+    private void unlink(K key, Node<V> node) {
+        if (map.remove(key, node)) {
+            weight.addAndGet(-node.weight);
+        }
+    }
+
+    private record Candidate<K, V>(K key, Node<V> node, long accessed) {}
+
+    private static final class Node<V> {
+        final V value;
+        final long weight;
+        final long createdAt;
+        volatile long lastAccess;
+
+        Node(V value, long weight, long now) {
+            this.value = value;
+            this.weight = weight;
+            this.createdAt = now;
+            this.lastAccess = now;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.admin.common;
+
+import com.example.admin.exception.BusinessException;
+import java.util.Locale;
+
+/**
+ * How an offset-paged list fills {@link PageResult#getTotal()}.
+ * <p>
+ * {@code EXACT} runs COUNT(*) as before. {@code NONE} skips it (total -1) and {@code APPROX} reports an estimate;
+ * both fetch one extra row instead, so {@link PageResult#isHasNext()} stays exact.
+ * <p>
+ * An {@code APPROX} total of an unfiltered list comes from MySQL's {@code information_schema.TABLES.TABLE_ROWS}:
+ * InnoDB samples it (it may be off by tens of percent), it counts logically deleted rows, and MySQL 8 caches it for
+ * {@code information_schema_stats_expiry} (24 h by default), so it can lag recent inserts and deletes by that long.
+ * Tables with a {@code @TableLogic} column therefore use the cached COUNT(*) instead, like filtered lists.
+ */
+public enum CountMode {
+    EXACT,
+    NONE,
+    APPROX;
+
+    /**
+     * @return EXACT for a blank value
+     * @throws BusinessException for anything but exact / none / approx
+     */
+    public static CountMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(400, "count 参数错误");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.admin.common;
+
+import com.example.admin.exception.BusinessException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Position after the last row of a keyset (seek) page, for lists ordered newest first by (time, id) or by id alone
+ * ({@code time} null).
+ * <p>
+ * Clients only see it as an opaque token ({@link PageResult#getNextCursor()}) and send it back unchanged. The next
+ * page is then "rows before this position" on the list's index instead of OFFSET + COUNT, so it costs the same at
+ * any depth. Callers fetch {@code size + 1} rows and {@link #trim} them; the extra row only tells whether there is
+ * a next page.
+ */
+public record KeysetCursor(LocalDateTime time, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = (time == null ? "" : time.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null for a blank token (first page)
+     * @throws BusinessException if the token is not one of ours
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(SEPARATOR);
+            String time = raw.substring(0, sep);
+            return new KeysetCursor(
+                    time.isEmpty() ? null : LocalDateTime.parse(time),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new BusinessException(400, "cursor 参数错误");
+        }
+    }
+
+    /**
+     * Cut rows fetched with {@code size + 1} down to {@code size} (in place).
+     *
+     * @return the token for the next page, or null if this is the last one
+     */
+    public static <E> String trim(List<E> rows, long size, Function<E, KeysetCursor> keyOf) {
+        if (rows.size() <= size) {
+            return null;
+        }
+        rows.subList((int) size, rows.size()).clear();
+        return keyOf.apply(rows.get(rows.size() - 1)).encode();
+    }
+}
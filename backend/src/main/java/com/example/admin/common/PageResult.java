@@ -1,13 +1,58 @@
 package com.example.admin.common;
 
 import java.util.List;
+import java.util.function.Function;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 
 @Data
 public class PageResult<T> {
     private List<T> records;
+    /** Total rows; -1 when not counted (cursor pages, count=none), an estimate with count=approx. */
     private long total;
     private long current;
     private long size;
-}
+    /**
+     * Cursor pages only: opaque token for the next page (pass it back as {@code cursor}), null on the last page.
+     */
+    private String nextCursor;
+    /** Whether a next page exists; null = derive it from total. */
+    @Getter(AccessLevel.NONE)
+    private Boolean hasNext;
+
+    public boolean isHasNext() {
+        if (hasNext != null) {
+            return hasNext;
+        }
+        return total >= 0 && size > 0 && current * size < total;
+    }
 
+    /**
+     * Same page with its records converted (entities to DTOs).
+     */
+    public <R> PageResult<R> map(Function<List<T>, List<R>> converter) {
+        PageResult<R> result = new PageResult<>();
+        result.setRecords(converter.apply(records));
+        result.setTotal(total);
+        result.setCurrent(current);
+        result.setSize(size);
+        result.setNextCursor(nextCursor);
+        result.setHasNext(hasNext);
+        return result;
+    }
+
+    /**
+     * One keyset (cursor) page: no total and no page number, only the way forward.
+     */
+    public static <T> PageResult<T> keyset(List<T> records, long size, String nextCursor) {
+        PageResult<T> result = new PageResult<>();
+        result.setRecords(records);
+        result.setTotal(-1);
+        result.setCurrent(0);
+        result.setSize(size);
+        result.setNextCursor(nextCursor);
+        result.setHasNext(nextCursor != null);
+        return result;
+    }
+}
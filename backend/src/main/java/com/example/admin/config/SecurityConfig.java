@@ -3,12 +3,14 @@ package com.example.admin.config;
 import com.example.admin.common.Result;
 import com.example.admin.security.JwtAuthenticationFilter;
 import com.example.admin.security.JwtTokenProvider;
+import com.example.admin.security.PermissionBitmapCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -20,6 +22,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -52,10 +55,35 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * Public assets are anonymous by definition: this chain skips JWT parsing, the security context and the default
+     * no-cache headers so the controller's immutable Cache-Control survives.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain publicAssetFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(AntPathRequestMatcher.antMatcher(HttpMethod.GET, "/api/files/public/**"))
+                .csrf(csrf -> csrf.disable())
+                .cors(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context.disable())
+                .requestCache(cache -> cache.disable())
+                .anonymous(anonymous -> anonymous.disable())
+                .formLogin(form -> form.disable())
+                .httpBasic(basic -> basic.disable())
+                .logout(logout -> logout.disable())
+                .headers(headers -> headers.cacheControl(cacheControl -> cacheControl.disable()))
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(
             HttpSecurity http,
             JwtTokenProvider jwtTokenProvider,
+            PermissionBitmapCodec permissionBitmapCodec,
             ObjectMapper objectMapper
     ) throws Exception {
         http
@@ -100,7 +128,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/comments/public").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(new JwtAuthenticationFilter(jwtTokenProvider, permissionBitmapCodec), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
@@ -196,9 +196,11 @@ public class ActivityController {
     public Result<PageResult<ActivitySignupDto>> listSignups(
             @RequestParam(defaultValue = "1") long current,
             @RequestParam(defaultValue = "10") long size,
-            @RequestParam(required = false) Long activityId
+            @RequestParam(required = false) Long activityId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
-        return Result.ok(activityService.listAllSignups(current, size, activityId));
+        return Result.ok(activityService.listAllSignups(current, size, activityId, cursor, count));
     }
 
     @GetMapping("/donations")
@@ -206,9 +208,11 @@ public class ActivityController {
     public Result<PageResult<ActivityDonationDto>> listDonations(
             @RequestParam(defaultValue = "1") long current,
             @RequestParam(defaultValue = "10") long size,
-            @RequestParam(required = false) Long activityId
+            @RequestParam(required = false) Long activityId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
-        return Result.ok(activityService.listAllDonations(current, size, activityId));
+        return Result.ok(activityService.listAllDonations(current, size, activityId, cursor, count));
     }
 
     @GetMapping("/favorites")
@@ -216,9 +220,11 @@ public class ActivityController {
     public Result<PageResult<ActivityFavoriteDto>> listFavorites(
             @RequestParam(defaultValue = "1") long current,
             @RequestParam(defaultValue = "10") long size,
-            @RequestParam(required = false) Long activityId
+            @RequestParam(required = false) Long activityId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
-        return Result.ok(activityService.listAllFavorites(current, size, activityId));
+        return Result.ok(activityService.listAllFavorites(current, size, activityId, cursor, count));
     }
 }
 
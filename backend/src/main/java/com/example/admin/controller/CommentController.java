@@ -74,9 +74,11 @@ public class CommentController {
             @RequestParam(defaultValue = "10") long size,
             @RequestParam(required = false) String targetType,
             @RequestParam(required = false) Long targetId,
-            @RequestParam(required = false) Long userId
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
-        return Result.ok(commentService.listAll(current, size, targetType, targetId, userId));
+        return Result.ok(commentService.listAll(current, size, targetType, targetId, userId, cursor, count));
     }
 
     @DeleteMapping("/{id}/manage")
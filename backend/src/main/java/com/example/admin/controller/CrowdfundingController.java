@@ -153,9 +153,11 @@ public class CrowdfundingController {
     public Result<PageResult<CrowdfundingDonationRecordDto>> listDonations(
             @RequestParam(defaultValue = "1") long current,
             @RequestParam(defaultValue = "10") long size,
-            @RequestParam(required = false) Long projectId
+            @RequestParam(required = false) Long projectId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
-        return Result.ok(crowdfundingService.listAllDonations(current, size, projectId));
+        return Result.ok(crowdfundingService.listAllDonations(current, size, projectId, cursor, count));
     }
 
     @GetMapping("/my/projects")
@@ -5,13 +5,16 @@ import com.example.admin.common.Result;
 import com.example.admin.dto.file.FileInfoDto;
 import com.example.admin.security.UserPrincipal;
 import com.example.admin.service.FileService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -27,10 +30,20 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/files")
 public class FileController {
 
+    private static final long VARIANT_FALLBACK_MAX_AGE_SECONDS = 60;
+
     private final FileService fileService;
+    private final long sendfileMinBytes;
+    private final long publicMaxAgeSeconds;
 
-    public FileController(FileService fileService) {
+    public FileController(
+            FileService fileService,
+            @Value("${app.file.sendfile-min-bytes:49152}") long sendfileMinBytes,
+            @Value("${app.file.public-cache.max-age-seconds:31536000}") long publicMaxAgeSeconds
+    ) {
         this.fileService = fileService;
+        this.sendfileMinBytes = sendfileMinBytes;
+        this.publicMaxAgeSeconds = publicMaxAgeSeconds;
     }
 
     @PostMapping("/upload")
@@ -43,6 +56,21 @@ public class FileController {
         return Result.ok(fileService.upload(userId, file, visibility));
     }
 
+    /**
+     * Raw-body upload: the request body is the file itself (Content-Type = the file's type), streamed to storage
+     * without multipart buffering. Filename and visibility are query parameters.
+     */
+    @PostMapping("/upload/stream")
+    public Result<FileInfoDto> uploadStream(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam("filename") String filename,
+            @RequestParam(value = "visibility", required = false) String visibility,
+            HttpServletRequest request
+    ) throws IOException {
+        Long userId = principal == null ? null : principal.userId();
+        return Result.ok(fileService.upload(userId, request.getInputStream(), filename, request.getContentType(), visibility));
+    }
+
     @GetMapping
     public Result<PageResult<FileInfoDto>> listMyFiles(
             @AuthenticationPrincipal UserPrincipal principal,
@@ -53,34 +81,56 @@ public class FileController {
         return Result.ok(fileService.listMyFiles(userId, current, size));
     }
 
+    /**
+     * @param size optional image variant: thumb / medium (the original is sent until the variant exists)
+     */
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> download(
+    public void download(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserPrincipal principal
-    ) {
+            @RequestParam(value = "size", required = false) String size,
+            @AuthenticationPrincipal UserPrincipal principal,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
         Long requesterUserId = principal == null ? null : principal.userId();
-        FileService.FileDownload download = fileService.download(id, requesterUserId);
+        FileService.FileDownload download = fileService.download(id, requesterUserId, size);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentDisposition(ContentDisposition.attachment()
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
                 .filename(download.originalName(), StandardCharsets.UTF_8)
-                .build());
+                .build()
+                .toString());
 
-        MediaType contentType = MediaType.APPLICATION_OCTET_STREAM;
-        if (download.contentType() != null && !download.contentType().isBlank()) {
-            try {
-                contentType = MediaType.parseMediaType(download.contentType());
-            } catch (Exception ignored) {
-                // fallback to octet-stream
-            }
-        }
+        FileRangeWriter.write(request, response, download, mediaType(download.contentType()), sendfileMinBytes);
+    }
 
-        FileSystemResource resource = new FileSystemResource(download.absolutePath());
-        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().headers(headers).contentType(contentType);
-        if (download.size() != null && download.size() >= 0) {
-            builder.contentLength(download.size());
-        }
-        return builder.body(resource);
+    /**
+     * Anonymous, cache-friendly path for PUBLIC assets (banners, covers, avatars): metadata and small files come from
+     * memory, the security chain for this path skips JWT handling, and responses may be cached for good since a
+     * file id always denotes the same bytes.
+     */
+    @GetMapping("/public/{id}")
+    public void publicAsset(
+            @PathVariable Long id,
+            @RequestParam(value = "size", required = false) String size,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        FileService.FileDownload download = fileService.downloadPublic(id, size);
+
+        // A variant that is not generated yet falls back to the original, which must not stick in caches for good.
+        // (An original that needs no variant comes back as the variant itself and is cached like one.)
+        boolean fallback = size != null && !size.isBlank() && !"original".equalsIgnoreCase(size.trim())
+                && download.variant() == null;
+        CacheControl cacheControl = fallback
+                ? CacheControl.maxAge(VARIANT_FALLBACK_MAX_AGE_SECONDS, TimeUnit.SECONDS).cachePublic()
+                : CacheControl.maxAge(publicMaxAgeSeconds, TimeUnit.SECONDS).cachePublic().immutable();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(download.originalName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        FileRangeWriter.write(request, response, download, mediaType(download.contentType()), sendfileMinBytes);
     }
 
     @DeleteMapping("/{id}")
@@ -92,5 +142,16 @@ public class FileController {
         fileService.delete(id, userId);
         return Result.ok(null);
     }
+
+    private MediaType mediaType(String contentType) {
+        if (contentType != null && !contentType.isBlank()) {
+            try {
+                return MediaType.parseMediaType(contentType);
+            } catch (Exception ignored) {
+                // fallback to octet-stream
+            }
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
 }
 
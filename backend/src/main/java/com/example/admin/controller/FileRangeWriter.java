@@ -0,0 +1,219 @@
+package com.example.admin.controller;
+
+import com.example.admin.service.FileService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Writes a stored file to the servlet response with conditional GET and byte-range support.
+ * <p>
+ * ETag / Last-Modified validators answer If-None-Match / If-Modified-Since with 304; a Range header (honoured only
+ * while If-Range still matches) yields 206 with a single part or multipart/byteranges, and 416 when unsatisfiable.
+ * Only the sendfile path avoids copying the body through the JVM: on Tomcat NIO a full body or single range of at least
+ * {@code sendfile-min-bytes} is handed to the connector, which streams it from the kernel. Everything else (smaller
+ * bodies, multipart ranges, other containers) goes through {@link FileChannel#transferTo} into a channel over the
+ * servlet output stream; that target is not a file or socket channel, so the JDK reads the file into a buffer and
+ * writes it through the container's output buffer, i.e. a regular copy, just without a buffer of our own. Small public
+ * files already held in memory ({@link FileService.FileDownload#content()}) are written directly.
+ */
+final class FileRangeWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileRangeWriter() {
+    }
+
+    /**
+     * @param sendfileMinBytes bodies smaller than this are written directly (sendfile setup is not worth it)
+     */
+    static void write(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FileService.FileDownload download,
+            MediaType contentType,
+            long sendfileMinBytes
+    ) throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(download.etag(), download.lastModified())) {
+            // 304 / 412 with validators already set.
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long length = download.size();
+        List<Region> regions;
+        try {
+            regions = requestedRegions(request, download);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        if (regions == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            transfer(request, response, download, 0, length, sendfileMinBytes);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            Region region = regions.get(0);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(length));
+            response.setContentLengthLong(region.count());
+            transfer(request, response, download, region.start(), region.count(), sendfileMinBytes);
+            return;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (Region region : regions) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + region.count();
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        OutputStream out = response.getOutputStream();
+        if (download.content() != null) {
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                out.write(download.content(), (int) regions.get(i).start(), (int) regions.get(i).count());
+            }
+            out.write(end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(download.absolutePath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                transferTo(channel, regions.get(i).start(), regions.get(i).count(), target);
+            }
+        }
+        out.write(end);
+    }
+
+    /**
+     * Regions to serve, or null for the whole file.
+     *
+     * @throws IllegalArgumentException if the Range header is unsatisfiable
+     */
+    private static List<Region> requestedRegions(HttpServletRequest request, FileService.FileDownload download) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        long length = download.size();
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || length == 0 || !ifRangeMatches(request, download)) {
+            return null;
+        }
+
+        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        List<Region> regions = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            regions.add(new Region(start, end));
+            total += end - start + 1;
+        }
+        // Overlapping ranges adding up to more than the file itself: send it once instead.
+        return total > length ? null : regions;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, FileService.FileDownload download) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            // Strong comparison: a weak tag never matches.
+            return value.equals(download.etag());
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date != -1 && download.lastModified() / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FileService.FileDownload download,
+            long start,
+            long count,
+            long sendfileMinBytes
+    ) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        if (download.content() != null) {
+            response.getOutputStream().write(download.content(), (int) start, (int) count);
+            return;
+        }
+        Path path = download.absolutePath();
+        if (count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The connector streams the file from the kernel once the request completes.
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transferTo(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void transferTo(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long n = channel.transferTo(position, remaining, target);
+            if (n <= 0) {
+                throw new EOFException("File shorter than expected");
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    /** Inclusive byte range. */
+    private record Region(long start, long end) {
+
+        long count() {
+            return end - start + 1;
+        }
+
+        String contentRange(long length) {
+            return "bytes " + start + "-" + end + "/" + length;
+        }
+    }
+}
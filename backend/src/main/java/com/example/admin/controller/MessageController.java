@@ -52,9 +52,11 @@ public class MessageController {
     @RequiresPermission("message:list")
     public Result<PageResult<MessageDto>> listAll(
             @RequestParam(defaultValue = "1") long current,
-            @RequestParam(defaultValue = "10") long size
+            @RequestParam(defaultValue = "10") long size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
-        return Result.ok(messageService.listAll(current, size));
+        return Result.ok(messageService.listAll(current, size, cursor, count));
     }
 
     @PutMapping("/{id}/reply")
@@ -3,10 +3,12 @@ package com.example.admin.controller;
 import com.example.admin.common.PageResult;
 import com.example.admin.common.Result;
 import com.example.admin.dto.notification.AnnounceRequest;
+import com.example.admin.dto.notification.AnnouncementJobDto;
 import com.example.admin.dto.notification.NotificationDto;
 import com.example.admin.security.RequiresPermission;
 import com.example.admin.security.UserPrincipal;
 import com.example.admin.service.NotificationService;
+import com.example.admin.websocket.WebSocketMetrics;
 import jakarta.validation.Valid;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -32,10 +34,12 @@ public class NotificationController {
     public Result<PageResult<NotificationDto>> list(
             @AuthenticationPrincipal UserPrincipal principal,
             @RequestParam(defaultValue = "1") long current,
-            @RequestParam(defaultValue = "10") long size
+            @RequestParam(defaultValue = "10") long size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count
     ) {
         Long userId = principal == null ? null : principal.userId();
-        return Result.ok(notificationService.listMyNotifications(userId, current, size));
+        return Result.ok(notificationService.listMyNotifications(userId, current, size, cursor, count));
     }
 
     @PutMapping("/{id}/read")
@@ -50,13 +54,24 @@ public class NotificationController {
 
     @PostMapping("/announce")
     @RequiresPermission("notification:announce")
-    public Result<Void> announce(
+    public Result<Long> announce(
             @AuthenticationPrincipal UserPrincipal principal,
             @Valid @RequestBody AnnounceRequest request
     ) {
         Long userId = principal == null ? null : principal.userId();
-        notificationService.announce(userId, request);
-        return Result.ok(null);
+        return Result.ok(notificationService.announce(userId, request));
+    }
+
+    @GetMapping("/ws-metrics")
+    @RequiresPermission("notification:announce")
+    public Result<WebSocketMetrics> wsMetrics() {
+        return Result.ok(notificationService.getPushMetrics());
+    }
+
+    @GetMapping("/announce/{jobId}")
+    @RequiresPermission("notification:announce")
+    public Result<AnnouncementJobDto> announceJob(@PathVariable Long jobId) {
+        return Result.ok(notificationService.getAnnouncementJob(jobId));
     }
 }
 
@@ -7,6 +7,7 @@ import com.example.admin.security.RequiresPermission;
 import com.example.admin.service.StatsService;
 import java.util.List;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -24,14 +25,36 @@ public class StatsController {
     @GetMapping("/activity-signup-ratio")
     @RequiresPermission("stats:view")
     public Result<List<ActivitySignupRatioDto>> activitySignupRatio(
-            @RequestParam(defaultValue = "7") int days
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(required = false) String engine
     ) {
-        return Result.ok(statsService.activitySignupRatio(days));
+        return Result.ok(statsService.activitySignupRatio(days, engine));
     }
 
     @GetMapping("/income-trend")
     @RequiresPermission("stats:view")
-    public Result<List<IncomeTrendDto>> incomeTrend(@RequestParam(defaultValue = "7") int days) {
-        return Result.ok(statsService.incomeTrend(days));
+    public Result<List<IncomeTrendDto>> incomeTrend(
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(required = false) String engine
+    ) {
+        return Result.ok(statsService.incomeTrend(days, engine));
+    }
+
+    /**
+     * Recompute the daily income rollup from raw donations (backfill / repair).
+     */
+    @PostMapping("/income-rollup/rebuild")
+    @RequiresPermission("stats:manage")
+    public Result<Integer> rebuildIncomeRollup(@RequestParam(defaultValue = "7") int days) {
+        return Result.ok(statsService.rebuildIncomeRollup(days));
+    }
+
+    /**
+     * Recompute the hourly signup buckets from raw signups (backfill / repair).
+     */
+    @PostMapping("/signup-rollup/rebuild")
+    @RequiresPermission("stats:manage")
+    public Result<Integer> rebuildSignupBuckets(@RequestParam(defaultValue = "7") int days) {
+        return Result.ok(statsService.rebuildSignupBuckets(days));
     }
 }
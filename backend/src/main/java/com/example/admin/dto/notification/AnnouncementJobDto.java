@@ -0,0 +1,16 @@
+package com.example.admin.dto.notification;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+
+@Data
+public class AnnouncementJobDto {
+    private Long id;
+    private String title;
+    /** PENDING / RUNNING / QUEUED (handed to the notification bus) / FAILED */
+    private String status;
+    /** Users online on the node that ran the job when the push was queued, known once the job starts. */
+    private Long total;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,33 @@
+package com.example.admin.dto.stats;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** One live stats change: a donation (kind income) or a signup / cancel (kind signup). */
+@Data
+public class StatsDeltaDto {
+    /** income / signup */
+    private String kind;
+
+    /** income: yyyy-MM-dd the amount counts for */
+    private String date;
+
+    /** income: donated amount */
+    private BigDecimal amount;
+
+    /** signup: activity whose count changed */
+    private Long activityId;
+
+    /** signup: +1 signup, -1 cancel */
+    private Integer delta;
+
+    /** signup: when the (canceled) signup was made; it counts only while this is inside the window */
+    private LocalDateTime signedAt;
+
+    /** Node whose feed numbered this delta, see {@link StatsSnapshotDto#getStream()} */
+    private String stream;
+
+    /** Increasing per stream; a delta with seq at or below the snapshot's is already in the snapshot */
+    private long seq;
+}
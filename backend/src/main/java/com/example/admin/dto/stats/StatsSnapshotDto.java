@@ -0,0 +1,20 @@
+package com.example.admin.dto.stats;
+
+import java.util.List;
+import lombok.Data;
+
+/** Live stats state sent to a dashboard when it subscribes; later changes arrive as {@link StatsDeltaDto}. */
+@Data
+public class StatsSnapshotDto {
+    private int days;
+
+    private List<IncomeTrendDto> incomeTrend;
+
+    private List<ActivitySignupRatioDto> activitySignupRatio;
+
+    /** Feed (node) that built this snapshot */
+    private String stream;
+
+    /** Last delta of {@link #stream} folded into this snapshot */
+    private long seq;
+}
@@ -41,6 +41,9 @@ public class BizActivity {
 
     private BigDecimal donatedAmount;
 
+    /** Occupied seats (SIGNED + CHECKED_IN), maintained by signup / cancel; null until the first signup seeds it. */
+    private Integer signupCount;
+
     /** 0-disabled 1-enabled */
     private Integer enabled;
 
@@ -0,0 +1,29 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * One stripe of an activity's not-yet-compacted donated amount.
+ * <p>
+ * Effective donated amount = biz_activity.donated_amount + SUM(stripes of that activity).
+ */
+@Data
+@TableName("biz_activity_donation_stripe")
+public class BizActivityDonationStripe {
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    private Long activityId;
+
+    /** 0..(stripes-1) */
+    private Integer stripeNo;
+
+    private BigDecimal amount;
+
+    private LocalDateTime updatedAt;
+}
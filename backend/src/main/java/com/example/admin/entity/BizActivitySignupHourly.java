@@ -0,0 +1,18 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** Active signups (SIGNED + CHECKED_IN) of one activity whose signed_at falls in one hour, see ActivitySignupBuckets. */
+@Data
+@TableName("biz_activity_signup_hourly")
+public class BizActivitySignupHourly {
+    private Long activityId;
+
+    private LocalDateTime bucketHour;
+
+    private Integer signups;
+
+    private LocalDateTime updatedAt;
+}
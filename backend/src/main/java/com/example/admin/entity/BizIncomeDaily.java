@@ -0,0 +1,23 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** One stripe of a day's donation income (activity + crowdfunding), see IncomeDailyRollup. */
+@Data
+@TableName("biz_income_daily")
+public class BizIncomeDaily {
+    @TableId(type = IdType.INPUT)
+    private LocalDate statDate;
+
+    private Integer stripeNo;
+
+    private BigDecimal amount;
+
+    private LocalDateTime updatedAt;
+}
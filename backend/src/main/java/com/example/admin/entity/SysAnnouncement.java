@@ -0,0 +1,23 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** Broadcast notification, stored once and visible to every user. */
+@Data
+@TableName("sys_announcement")
+public class SysAnnouncement {
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    private String title;
+
+    private String content;
+
+    private Long createdBy;
+
+    private LocalDateTime createdAt;
+}
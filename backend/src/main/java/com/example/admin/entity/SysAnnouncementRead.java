@@ -0,0 +1,20 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+@Data
+@TableName("sys_announcement_read")
+public class SysAnnouncementRead {
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    private Long announcementId;
+
+    private Long userId;
+
+    private LocalDateTime createdAt;
+}
@@ -16,9 +16,12 @@ public class SysFile {
 
     private String storedName;
 
-    /** Relative path on disk (e.g. yyyy/MM/dd/{id}.ext) */
+    /** Relative path on disk (e.g. yyyy/MM/dd/{id}.ext), the storage object's path for deduplicated files */
     private String path;
 
+    /** sys_file_object.id; null for files stored before deduplication */
+    private Long objectId;
+
     private Long size;
 
     private String contentType;
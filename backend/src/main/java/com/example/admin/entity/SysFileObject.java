@@ -0,0 +1,28 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** Stored content shared by every sys_file row with the same SHA-256. */
+@Data
+@TableName("sys_file_object")
+public class SysFileObject {
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /** Hex SHA-256 of the content */
+    private String sha256;
+
+    private Long size;
+
+    /** Relative path on disk (e.g. yyyy/MM/dd/{id}.ext) */
+    private String path;
+
+    /** Live sys_file rows referencing this object; the object and its file go away at 0. */
+    private Integer refCount;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,25 @@
+package com.example.admin.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/** Short-lived WebSocket delivery event shared by all nodes (see JdbcNotificationBus). */
+@Data
+@TableName("sys_ws_event")
+public class SysWsEvent {
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /** Target user; null means broadcast (or topic publish). */
+    private Long userId;
+
+    /** Target topic subscribers; null for user / broadcast events. */
+    private String topic;
+
+    private String payload;
+
+    private LocalDateTime createdAt;
+}
@@ -2,6 +2,24 @@ package com.example.admin.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.admin.entity.BizActivityDonation;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
-public interface BizActivityDonationMapper extends BaseMapper<BizActivityDonation> {}
+public interface BizActivityDonationMapper extends BaseMapper<BizActivityDonation> {
 
+    /**
+     * Activity + crowdfunding income per day in [{@code from}, {@code to}), aggregated by the database: one row per
+     * day with income (columns stat_date, amount).
+     */
+    @Select("SELECT t.stat_date, SUM(t.amount) AS amount FROM ("
+            + "SELECT CAST(created_at AS DATE) AS stat_date, amount FROM biz_activity_donation "
+            + "WHERE created_at >= #{from} AND created_at < #{to} "
+            + "UNION ALL "
+            + "SELECT CAST(created_at AS DATE) AS stat_date, amount FROM biz_crowdfunding_donation "
+            + "WHERE created_at >= #{from} AND created_at < #{to}"
+            + ") t GROUP BY t.stat_date")
+    List<Map<String, Object>> selectIncomeByDate(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
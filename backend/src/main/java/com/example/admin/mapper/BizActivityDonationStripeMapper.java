@@ -0,0 +1,21 @@
+package com.example.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.admin.entity.BizActivityDonationStripe;
+import java.math.BigDecimal;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+
+public interface BizActivityDonationStripeMapper extends BaseMapper<BizActivityDonationStripe> {
+
+    /** Upsert: create the stripe row on first use, otherwise add to it. */
+    @Insert("INSERT INTO biz_activity_donation_stripe (id, activity_id, stripe_no, amount) "
+            + "VALUES (#{id}, #{activityId}, #{stripeNo}, #{amount}) "
+            + "ON DUPLICATE KEY UPDATE amount = amount + #{amount}")
+    int addToStripe(
+            @Param("id") long id,
+            @Param("activityId") Long activityId,
+            @Param("stripeNo") int stripeNo,
+            @Param("amount") BigDecimal amount
+    );
+}
@@ -2,6 +2,34 @@ package com.example.admin.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.admin.entity.BizActivity;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
-public interface BizActivityMapper extends BaseMapper<BizActivity> {}
+public interface BizActivityMapper extends BaseMapper<BizActivity> {
 
+    /**
+     * Initialise signup_count from the signup rows if it was never set (activities created before the column).
+     * updated_at is kept as is: seat bookkeeping is not an edit of the activity.
+     */
+    @Update("UPDATE biz_activity SET signup_count = (SELECT COUNT(*) FROM biz_activity_signup s "
+            + "WHERE s.activity_id = #{id} AND s.status IN ('SIGNED', 'CHECKED_IN')), updated_at = updated_at "
+            + "WHERE id = #{id} AND signup_count IS NULL")
+    int seedSignupCount(@Param("id") Long id);
+
+    /**
+     * Take one seat unless {@code maxParticipants} (null = unlimited) are already taken. Row-locks the activity, so
+     * this is the authoritative check across nodes.
+     *
+     * @return 1 if the seat was taken, 0 if the activity is full
+     */
+    @Update("<script>"
+            + "UPDATE biz_activity SET signup_count = signup_count + 1, updated_at = updated_at "
+            + "WHERE id = #{id} AND deleted = 0"
+            + "<if test='maxParticipants != null'> AND signup_count &lt; #{maxParticipants}</if>"
+            + "</script>")
+    int takeSeat(@Param("id") Long id, @Param("maxParticipants") Integer maxParticipants);
+
+    @Update("UPDATE biz_activity SET signup_count = signup_count - 1, updated_at = updated_at "
+            + "WHERE id = #{id} AND signup_count > 0")
+    int releaseSeat(@Param("id") Long id);
+}
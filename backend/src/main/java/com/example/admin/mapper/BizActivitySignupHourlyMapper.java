@@ -0,0 +1,33 @@
+package com.example.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.admin.entity.BizActivitySignupHourly;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface BizActivitySignupHourlyMapper extends BaseMapper<BizActivitySignupHourly> {
+
+    /**
+     * Add {@code delta} (may be negative) to one activity-hour bucket, creating it on first use.
+     */
+    @Insert("INSERT INTO biz_activity_signup_hourly (activity_id, bucket_hour, signups) "
+            + "VALUES (#{activityId}, #{bucketHour}, #{delta}) "
+            + "ON DUPLICATE KEY UPDATE signups = signups + #{delta}")
+    int add(@Param("activityId") Long activityId, @Param("bucketHour") LocalDateTime bucketHour, @Param("delta") int delta);
+
+    /**
+     * Signups per activity over the buckets from {@code from} on, with the activity title (null once the activity
+     * is deleted); columns activity_id, activity_title, cnt.
+     */
+    @Select("SELECT b.activity_id, a.title AS activity_title, SUM(b.signups) AS cnt "
+            + "FROM biz_activity_signup_hourly b "
+            + "LEFT JOIN biz_activity a ON a.id = b.activity_id AND a.deleted = 0 "
+            + "WHERE b.bucket_hour >= #{from} "
+            + "GROUP BY b.activity_id, a.title "
+            + "HAVING SUM(b.signups) > 0")
+    List<Map<String, Object>> selectWindow(@Param("from") LocalDateTime from);
+}
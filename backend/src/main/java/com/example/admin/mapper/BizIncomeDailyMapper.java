@@ -0,0 +1,55 @@
+package com.example.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.admin.entity.BizIncomeDaily;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface BizIncomeDailyMapper extends BaseMapper<BizIncomeDaily> {
+
+    /**
+     * Add to one stripe row of a day, creating it if needed.
+     */
+    @Insert("INSERT INTO biz_income_daily (stat_date, stripe_no, amount) VALUES (#{statDate}, #{stripeNo}, #{amount}) "
+            + "ON DUPLICATE KEY UPDATE amount = amount + #{amount}")
+    int addToStripe(
+            @Param("statDate") LocalDate statDate,
+            @Param("stripeNo") int stripeNo,
+            @Param("amount") BigDecimal amount
+    );
+
+    /**
+     * Create the stripe row if needed and lock it (the no-op update still takes the row lock).
+     */
+    @Insert("INSERT INTO biz_income_daily (stat_date, stripe_no, amount) VALUES (#{statDate}, #{stripeNo}, 0) "
+            + "ON DUPLICATE KEY UPDATE amount = amount")
+    int lockStripe(@Param("statDate") LocalDate statDate, @Param("stripeNo") int stripeNo);
+
+    /**
+     * Activity + crowdfunding income per day in [{@code from}, {@code to}) from the raw donation tables (plain,
+     * non-locking read); one row per day with income, stripe_no unset.
+     */
+    @Select("SELECT t.stat_date, SUM(t.amount) AS amount FROM ("
+            + "SELECT CAST(created_at AS DATE) AS stat_date, amount FROM biz_activity_donation "
+            + "WHERE created_at >= #{from} AND created_at < #{to} "
+            + "UNION ALL "
+            + "SELECT CAST(created_at AS DATE) AS stat_date, amount FROM biz_crowdfunding_donation "
+            + "WHERE created_at >= #{from} AND created_at < #{to}"
+            + ") t GROUP BY t.stat_date")
+    List<BizIncomeDaily> sumDonationsByDate(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Time of the oldest activity or crowdfunding donation; null when there are none.
+     */
+    @Select("SELECT MIN(t.created_at) FROM ("
+            + "SELECT MIN(created_at) AS created_at FROM biz_activity_donation "
+            + "UNION ALL "
+            + "SELECT MIN(created_at) AS created_at FROM biz_crowdfunding_donation"
+            + ") t")
+    LocalDateTime selectFirstDonationAt();
+}
@@ -0,0 +1,6 @@
+package com.example.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.admin.entity.SysAnnouncementRead;
+
+public interface SysAnnouncementReadMapper extends BaseMapper<SysAnnouncementRead> {}
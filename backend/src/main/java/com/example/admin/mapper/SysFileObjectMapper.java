@@ -0,0 +1,6 @@
+package com.example.admin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.admin.entity.SysFileObject;
+
+public interface SysFileObjectMapper extends BaseMapper<SysFileObject> {}
@@ -2,6 +2,50 @@ package com.example.admin.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.admin.entity.SysNotification;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
-public interface SysNotificationMapper extends BaseMapper<SysNotification> {}
+public interface SysNotificationMapper extends BaseMapper<SysNotification> {
 
+    /**
+     * A user's inbox: personal notifications merged with broadcast announcements (read state from
+     * sys_announcement_read), newest first. Only announcements made since the user registered are listed.
+     * Each branch is cut to {@code offset + limit} rows before the merge.
+     * A non-null {@code beforeId} keeps only rows with a smaller id (keyset paging; pass offset 0).
+     */
+    @Select("<script>"
+            + "SELECT t.id, t.title, t.content, t.type, t.is_read, t.created_at FROM ("
+            + "(SELECT n.id, n.title, n.content, n.type, n.is_read, n.created_at FROM sys_notification n "
+            + "WHERE n.user_id = #{userId}<if test='unreadOnly'> AND n.is_read = 0</if>"
+            + "<if test='beforeId != null'> AND n.id &lt; #{beforeId}</if> "
+            + "ORDER BY n.id DESC LIMIT #{window}) "
+            + "UNION ALL "
+            + "(SELECT a.id, a.title, a.content, 'ANNOUNCEMENT' AS type, "
+            + "CASE WHEN r.id IS NULL THEN 0 ELSE 1 END AS is_read, a.created_at FROM sys_announcement a "
+            + "JOIN sys_user u ON u.id = #{userId} AND a.created_at &gt;= u.created_at "
+            + "LEFT JOIN sys_announcement_read r ON r.announcement_id = a.id AND r.user_id = #{userId} "
+            + "<where><if test='unreadOnly'>r.id IS NULL</if>"
+            + "<if test='beforeId != null'> AND a.id &lt; #{beforeId}</if></where> "
+            + "ORDER BY a.id DESC LIMIT #{window})"
+            + ") t ORDER BY t.id DESC LIMIT #{limit} OFFSET #{offset}"
+            + "</script>")
+    List<SysNotification> selectInbox(
+            @Param("userId") Long userId,
+            @Param("unreadOnly") boolean unreadOnly,
+            @Param("offset") long offset,
+            @Param("limit") long limit,
+            @Param("window") long window,
+            @Param("beforeId") Long beforeId
+    );
+
+    @Select("<script>"
+            + "SELECT (SELECT COUNT(*) FROM sys_notification n WHERE n.user_id = #{userId}"
+            + "<if test='unreadOnly'> AND n.is_read = 0</if>) + "
+            + "(SELECT COUNT(*) FROM sys_announcement a "
+            + "JOIN sys_user u ON u.id = #{userId} AND a.created_at &gt;= u.created_at "
+            + "LEFT JOIN sys_announcement_read r ON r.announcement_id = a.id AND r.user_id = #{userId}"
+            + "<if test='unreadOnly'> WHERE r.id IS NULL</if>)"
+            + "</script>")
+    long countInbox(@Param("userId") Long userId, @Param("unreadOnly") boolean unreadOnly);
+}
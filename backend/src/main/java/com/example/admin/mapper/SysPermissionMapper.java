@@ -2,6 +2,30 @@ package com.example.admin.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.admin.entity.SysPermission;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
-public interface SysPermissionMapper extends BaseMapper<SysPermission> {}
+public interface SysPermissionMapper extends BaseMapper<SysPermission> {
 
+    /** Permission codes of one user: user_role -> role -> role_permission -> permission (soft-deleted rows excluded). */
+    @Select("SELECT DISTINCT p.code FROM sys_user_role ur "
+            + "JOIN sys_role r ON r.id = ur.role_id AND r.deleted = 0 "
+            + "JOIN sys_role_permission rp ON rp.role_id = r.id "
+            + "JOIN sys_permission p ON p.id = rp.permission_id AND p.deleted = 0 "
+            + "WHERE ur.user_id = #{userId}")
+    List<String> selectCodesByUserId(@Param("userId") Long userId);
+
+    /** Batch variant: rows of (user_id, code). */
+    @Select("<script>"
+            + "SELECT DISTINCT ur.user_id AS user_id, p.code AS code FROM sys_user_role ur "
+            + "JOIN sys_role r ON r.id = ur.role_id AND r.deleted = 0 "
+            + "JOIN sys_role_permission rp ON rp.role_id = r.id "
+            + "JOIN sys_permission p ON p.id = rp.permission_id AND p.deleted = 0 "
+            + "WHERE ur.user_id IN "
+            + "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+            + "</script>")
+    List<Map<String, Object>> selectCodesByUserIds(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,19 @@
+package com.example.admin.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+
+public interface SysRbacVersionMapper {
+
+    /**
+     * Current shared RBAC version; null before the first RBAC change.
+     */
+    @Select("SELECT version FROM sys_rbac_version WHERE id = 1")
+    Long current();
+
+    /**
+     * Bump the version; call inside the transaction that changes roles, permissions or their assignments.
+     */
+    @Insert("INSERT INTO sys_rbac_version (id, version) VALUES (1, 1) ON DUPLICATE KEY UPDATE version = version + 1")
+    int bump();
+}
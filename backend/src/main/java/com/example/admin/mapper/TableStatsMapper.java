@@ -0,0 +1,15 @@
+package com.example.admin.mapper;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface TableStatsMapper {
+
+    /**
+     * Row count estimate kept by the storage engine (InnoDB: sampled, may be off by tens of percent); null when the
+     * table is unknown. MySQL only.
+     */
+    @Select("SELECT TABLE_ROWS FROM information_schema.TABLES "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{table}")
+    Long estimatedRows(@Param("table") String table);
+}
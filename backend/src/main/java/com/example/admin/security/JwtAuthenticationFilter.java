@@ -1,13 +1,13 @@
 package com.example.admin.security;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,9 +17,11 @@ import org.springframework.web.filter.OncePerRequestFilter;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
+    private final PermissionBitmapCodec permissionBitmapCodec;
 
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, PermissionBitmapCodec permissionBitmapCodec) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.permissionBitmapCodec = permissionBitmapCodec;
     }
 
     @Override
@@ -30,25 +32,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         String token = extractToken(request);
         if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            try {
-                Claims claims = jwtTokenProvider.parseToken(token);
-                if (jwtTokenProvider.isAccessToken(claims)) {
-                    Long userId = jwtTokenProvider.getUserIdFromToken(token);
-                    String username = String.valueOf(claims.get("username"));
-                    List<String> roles = getStringListClaim(claims.get("roles"));
+            // Invalid token: leave unauthenticated and let Security handle 401/403.
+            VerifiedAccessToken verified = jwtTokenProvider.verifyAccessToken(token);
+            if (verified != null) {
+                // Null when the token has no bitmap or it is stale; PermissionAspect then looks permissions up.
+                Set<String> permissions = permissionBitmapCodec.decode(
+                        verified.permissionEpoch(),
+                        verified.permissionBitmap()
+                );
 
-                    UserPrincipal principal = new UserPrincipal(userId, username, roles);
-                    var authorities = roles.stream()
-                            .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
-                            .toList();
-
-                    UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(principal, null, authorities);
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                List<String> roles = verified.roles();
+                UserPrincipal principal = new UserPrincipal(verified.userId(), verified.username(), roles, permissions);
+                List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+                roles.forEach(r -> authorities.add(new SimpleGrantedAuthority("ROLE_" + r)));
+                if (permissions != null) {
+                    permissions.forEach(p -> authorities.add(new SimpleGrantedAuthority(p)));
                 }
-            } catch (Exception ignored) {
-                // Invalid token: leave unauthenticated and let Security handle 401/403.
+
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(principal, null, authorities);
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         }
 
@@ -62,16 +66,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return header.substring(7);
     }
-
-    @SuppressWarnings("unchecked")
-    private List<String> getStringListClaim(Object claim) {
-        if (claim == null) {
-            return Collections.emptyList();
-        }
-        if (claim instanceof List<?> list) {
-            return (List<String>) list;
-        }
-        return Collections.emptyList();
-    }
 }
-
@@ -1,20 +1,36 @@
 package com.example.admin.security;
 
+import com.example.admin.common.BoundedCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 import javax.crypto.SecretKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Issues and verifies JWTs.
+ * <p>
+ * The HMAC key and parser are built once. Verified access tokens are kept in a bounded, approximately-LRU
+ * {@link BoundedCache} keyed by the SHA-256 of the token, so a client replaying the same bearer token skips signature
+ * verification and claim parsing until the token expires; cache hits take no lock.
+ */
 @Component
 public class JwtTokenProvider {
     private static final String CLAIM_TOKEN_TYPE = "token_type";
     private static final String TOKEN_TYPE_ACCESS = "access";
     private static final String TOKEN_TYPE_REFRESH = "refresh";
+    private static final String CLAIM_PERMISSIONS = "perms";
+    private static final String CLAIM_PERMISSION_EPOCH = "perm_epoch";
 
     @Value("${app.jwt.secret}")
     private String secret;
@@ -28,20 +44,53 @@ public class JwtTokenProvider {
     @Value("${app.jwt.refresh-token-ttl-seconds:2592000}")
     private long refreshTokenTtlSeconds;
 
+    @Value("${app.jwt.verified-cache-size:4096}")
+    private int verifiedCacheSize;
+
+    private SecretKey secretKey;
+    private JwtParser parser;
+    private BoundedCache<String, VerifiedAccessToken> verifiedAccessTokens;
+
+    @PostConstruct
+    public void init() {
+        // HS256 requires >= 256-bit key (>= 32 bytes).
+        secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        // JJWT 0.12.x: avoid deprecated setSigningKey/parseClaimsJws. The built parser is immutable and thread-safe.
+        parser = Jwts.parser().verifyWith(secretKey).build();
+
+        // Entries carry their own expiry (checked on every hit), so the cache needs no TTL of its own.
+        verifiedAccessTokens = BoundedCache.ofEntries(Math.max(0, verifiedCacheSize), 0);
+    }
+
     public String generateAccessToken(long userId, String username, List<String> roles) {
+        return generateAccessToken(userId, username, roles, null);
+    }
+
+    /**
+     * @param permissions optional permission bitmap (see {@link PermissionBitmapCodec}); null to omit
+     */
+    public String generateAccessToken(
+            long userId,
+            String username,
+            List<String> roles,
+            PermissionBitmapCodec.TokenPermissions permissions
+    ) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + accessTokenTtlSeconds * 1000);
 
-        return Jwts.builder()
+        var builder = Jwts.builder()
                 .issuer(issuer)
                 .issuedAt(now)
                 .expiration(exp)
                 .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_ACCESS)
                 .claim("userId", userId)
                 .claim("username", username)
-                .claim("roles", roles)
-                .signWith(getSecretKey(), Jwts.SIG.HS256)
-                .compact();
+                .claim("roles", roles);
+        if (permissions != null) {
+            builder.claim(CLAIM_PERMISSIONS, permissions.bitmap())
+                    .claim(CLAIM_PERMISSION_EPOCH, permissions.epoch());
+        }
+        return builder.signWith(getSecretKey(), Jwts.SIG.HS256).compact();
     }
 
     public String generateRefreshToken(long userId) {
@@ -59,12 +108,54 @@ public class JwtTokenProvider {
     }
 
     public Claims parseToken(String token) {
-        // JJWT 0.12.x: avoid deprecated setSigningKey/parseClaimsJws.
-        return Jwts.parser()
-                .verifyWith(getSecretKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Verify an access token with a single parse.
+     *
+     * @return the verified token, or null if it is invalid, expired or not an access token
+     */
+    public VerifiedAccessToken verifyAccessToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String key = verifiedCacheSize > 0 ? sha256(token) : null;
+        if (key != null) {
+            VerifiedAccessToken cached = verifiedAccessTokens.get(key);
+            if (cached != null) {
+                if (cached.expiresAtMillis() > System.currentTimeMillis()) {
+                    return cached;
+                }
+                verifiedAccessTokens.remove(key);
+            }
+        }
+
+        Claims claims;
+        Long userId;
+        try {
+            claims = parseToken(token);
+            userId = getUserId(claims);
+        } catch (Exception e) {
+            return null;
+        }
+        if (!isAccessToken(claims) || userId == null) {
+            return null;
+        }
+
+        Date exp = claims.getExpiration();
+        VerifiedAccessToken verified = new VerifiedAccessToken(
+                userId,
+                String.valueOf(claims.get("username")),
+                getStringListClaim(claims.get("roles")),
+                getPermissionEpoch(claims),
+                getPermissionBitmap(claims),
+                exp == null ? Long.MAX_VALUE : exp.getTime()
+        );
+        if (key != null) {
+            verifiedAccessTokens.put(key, verified);
+        }
+        return verified;
     }
 
     public boolean isTokenExpired(String token) {
@@ -73,7 +164,11 @@ public class JwtTokenProvider {
     }
 
     public Long getUserIdFromToken(String token) {
-        Object userId = parseToken(token).get("userId");
+        return getUserId(parseToken(token));
+    }
+
+    public Long getUserId(Claims claims) {
+        Object userId = claims.get("userId");
         if (userId == null) {
             return null;
         }
@@ -88,6 +183,16 @@ public class JwtTokenProvider {
         return type == null ? null : type.toString();
     }
 
+    public String getPermissionBitmap(Claims claims) {
+        Object bitmap = claims.get(CLAIM_PERMISSIONS);
+        return bitmap == null ? null : bitmap.toString();
+    }
+
+    public String getPermissionEpoch(Claims claims) {
+        Object epoch = claims.get(CLAIM_PERMISSION_EPOCH);
+        return epoch == null ? null : epoch.toString();
+    }
+
     public boolean isAccessToken(Claims claims) {
         return TOKEN_TYPE_ACCESS.equals(getTokenType(claims));
     }
@@ -97,8 +202,24 @@ public class JwtTokenProvider {
     }
 
     private SecretKey getSecretKey() {
-        // HS256 requires >= 256-bit key (>= 32 bytes).
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return secretKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> getStringListClaim(Object claim) {
+        if (claim instanceof List<?> list) {
+            return List.copyOf((List<String>) list);
+        }
+        return Collections.emptyList();
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
 
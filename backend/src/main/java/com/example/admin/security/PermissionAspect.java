@@ -17,9 +17,11 @@ import org.springframework.stereotype.Component;
 public class PermissionAspect {
 
     private final PermissionService permissionService;
+    private final PermissionCache permissionCache;
 
-    public PermissionAspect(PermissionService permissionService) {
+    public PermissionAspect(PermissionService permissionService, PermissionCache permissionCache) {
         this.permissionService = permissionService;
+        this.permissionCache = permissionCache;
     }
 
     @Around("@annotation(requiresPermission)")
@@ -34,7 +36,9 @@ public class PermissionAspect {
             throw new AuthenticationCredentialsNotFoundException("未登录");
         }
 
-        Set<String> permissions = permissionService.getPermissionsByUserId(principal.userId());
+        Set<String> permissions = principal.permissions() != null
+                ? principal.permissions()
+                : permissionCache.get(principal.userId(), permissionService::getPermissionsByUserId);
         if (!permissions.contains(permission)) {
             log.debug("Permission denied: userId={}, need={}, has={}", principal.userId(), permission, permissions);
             throw new AccessDeniedException("权限不足");
@@ -0,0 +1,124 @@
+package com.example.admin.security;
+
+import com.example.admin.dto.permission.PermissionDto;
+import com.example.admin.service.PermissionService;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes a user's permission codes as a compact bitmap for the access token.
+ * <p>
+ * Bit i stands for the i-th permission ordered by id. The dictionary is rebuilt whenever the shared RBAC version of
+ * {@link PermissionCache} changes, and every bitmap carries an epoch ({@code <rbac-version>.<dictionary-hash>}). The
+ * version is stored in the DB, so tokens stay valid across nodes and restarts; the hash guards against a version
+ * number reused by a different database. A bitmap whose epoch is not the current one is not trusted and the caller
+ * falls back to the regular permission lookup.
+ * <p>
+ * Disabled unless {@code app.jwt.embed-permissions=true}.
+ */
+@Component
+public class PermissionBitmapCodec {
+
+    private final PermissionService permissionService;
+    private final PermissionCache permissionCache;
+    private final boolean enabled;
+
+    private volatile Dictionary dictionary;
+
+    public PermissionBitmapCodec(
+            PermissionService permissionService,
+            PermissionCache permissionCache,
+            @Value("${app.jwt.embed-permissions:false}") boolean enabled
+    ) {
+        this.permissionService = permissionService;
+        this.permissionCache = permissionCache;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Bitmap for the user's current permissions, or null when the feature is disabled.
+     */
+    public TokenPermissions issue(Long userId) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        Dictionary dict = currentDictionary();
+        Set<String> permissions = permissionCache.get(userId, permissionService::getPermissionsByUserId);
+        BitSet bits = new BitSet(dict.codes().size());
+        for (String code : permissions) {
+            Integer index = dict.indexByCode().get(code);
+            if (index != null) {
+                bits.set(index);
+            }
+        }
+        String bitmap = Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+        return new TokenPermissions(dict.epoch(), bitmap);
+    }
+
+    /**
+     * Decode a bitmap issued by {@link #issue(Long)}; null when disabled, stale or malformed.
+     */
+    public Set<String> decode(String epoch, String bitmap) {
+        if (!enabled || epoch == null || bitmap == null) {
+            return null;
+        }
+        Dictionary dict = currentDictionary();
+        if (!dict.epoch().equals(epoch)) {
+            return null;
+        }
+        BitSet bits;
+        try {
+            bits = BitSet.valueOf(Base64.getUrlDecoder().decode(bitmap));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bits.length() > dict.codes().size()) {
+            return null;
+        }
+        Set<String> permissions = new HashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            permissions.add(dict.codes().get(i));
+        }
+        return Set.copyOf(permissions);
+    }
+
+    private Dictionary currentDictionary() {
+        long version = permissionCache.currentVersion();
+        Dictionary dict = dictionary;
+        if (dict != null && dict.version() == version) {
+            return dict;
+        }
+        // Stamp with the version read before loading, same as PermissionCache.
+        List<String> codes = permissionService.listAll().stream()
+                .filter(p -> p.getId() != null && p.getCode() != null)
+                .sorted(Comparator.comparing(PermissionDto::getId))
+                .map(PermissionDto::getCode)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, Integer> indexByCode = new HashMap<>();
+        for (int i = 0; i < codes.size(); i++) {
+            indexByCode.putIfAbsent(codes.get(i), i);
+        }
+        String epoch = version + "." + Integer.toHexString(codes.hashCode());
+        dict = new Dictionary(version, epoch, codes, Map.copyOf(indexByCode));
+        dictionary = dict;
+        return dict;
+    }
+
+    public record TokenPermissions(String epoch, String bitmap) {}
+
+    private record Dictionary(long version, String epoch, List<String> codes, Map<String, Integer> indexByCode) {}
+}
@@ -0,0 +1,122 @@
+package com.example.admin.security;
+
+import com.example.admin.mapper.SysRbacVersionMapper;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded per-user permission cache stamped with the shared RBAC version.
+ * <p>
+ * The version lives in sys_rbac_version, so every node sees the same one: any RBAC write calls
+ * {@link #invalidateAll()}, which bumps it in the writing transaction and makes every cached set stale at once
+ * (O(1), no iteration). Each node re-reads the version at most every {@code rbac-version-check-ms}, which bounds how
+ * long another node keeps serving revoked permissions; the writing node re-reads it right after the commit.
+ */
+@Component
+public class PermissionCache {
+
+    private final SysRbacVersionMapper rbacVersionMapper;
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long versionCheckMs;
+
+    private volatile long version;
+    /** When {@link #version} was last read from the DB; 0 = re-read on next use. */
+    private volatile long versionCheckedAt;
+
+    public PermissionCache(
+            SysRbacVersionMapper rbacVersionMapper,
+            @Value("${app.security.permission-cache-size:10000}") int maxEntries,
+            @Value("${app.security.rbac-version-check-ms:1000}") long versionCheckMs
+    ) {
+        this.rbacVersionMapper = rbacVersionMapper;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.versionCheckMs = Math.max(0, versionCheckMs);
+    }
+
+    public Set<String> get(Long userId, Function<Long, Set<String>> loader) {
+        if (userId == null) {
+            return Set.of();
+        }
+        long current = currentVersion();
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.version() == current) {
+            return entry.permissions();
+        }
+
+        // Stamp with the version read *before* loading: if an admin change lands meanwhile, the entry is already stale.
+        Set<String> permissions = Set.copyOf(loader.apply(userId));
+        if (entries.size() >= maxEntries) {
+            evict(current);
+        }
+        entries.put(userId, new Entry(current, permissions));
+        return permissions;
+    }
+
+    /**
+     * Shared RBAC version, at most {@code rbac-version-check-ms} old.
+     */
+    public long currentVersion() {
+        if (System.currentTimeMillis() - versionCheckedAt >= versionCheckMs) {
+            refreshVersion();
+        }
+        return version;
+    }
+
+    /**
+     * Invalidate all cached permission sets, on every node.
+     * <p>
+     * Bumps the shared version in the caller's transaction; this node re-reads it now and again once the transaction
+     * is over, so a request that re-loads between the write and the commit cannot pin the pre-commit permissions
+     * under the new version.
+     */
+    public void invalidateAll() {
+        rbacVersionMapper.bump();
+        markStale();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    markStale();
+                }
+            });
+        }
+    }
+
+    private synchronized void refreshVersion() {
+        long now = System.currentTimeMillis();
+        if (now - versionCheckedAt < versionCheckMs) {
+            // Another thread just read it.
+            return;
+        }
+        Long stored = rbacVersionMapper.current();
+        version = stored == null ? 0 : stored;
+        versionCheckedAt = now;
+    }
+
+    /**
+     * Synchronized with {@link #refreshVersion()} so a read that started before the write cannot overwrite this.
+     */
+    private synchronized void markStale() {
+        versionCheckedAt = 0;
+    }
+
+    private void evict(long current) {
+        entries.values().removeIf(e -> e.version() != current);
+        Iterator<Long> it = entries.keySet().iterator();
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record Entry(long version, Set<String> permissions) {}
+}
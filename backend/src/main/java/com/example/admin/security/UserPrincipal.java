@@ -1,6 +1,14 @@
 package com.example.admin.security;
 
 import java.util.List;
+import java.util.Set;
 
-public record UserPrincipal(Long userId, String username, List<String> roles) {}
+/**
+ * @param permissions permission codes decoded from the access token, or null when they must be looked up
+ */
+public record UserPrincipal(Long userId, String username, List<String> roles, Set<String> permissions) {
 
+    public UserPrincipal(Long userId, String username, List<String> roles) {
+        this(userId, username, roles, null);
+    }
+}
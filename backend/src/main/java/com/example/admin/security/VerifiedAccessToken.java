@@ -0,0 +1,18 @@
+package com.example.admin.security;
+
+import java.util.List;
+
+/**
+ * Claims of an access token whose signature and expiry have been checked.
+ *
+ * @param permissionEpoch  see {@link PermissionBitmapCodec}; null when the token has no embedded permissions
+ * @param permissionBitmap see {@link PermissionBitmapCodec}; null when the token has no embedded permissions
+ */
+public record VerifiedAccessToken(
+        Long userId,
+        String username,
+        List<String> roles,
+        String permissionEpoch,
+        String permissionBitmap,
+        long expiresAtMillis
+) {}
@@ -44,11 +44,34 @@ public interface ActivityService {
 
     PageResult<ActivityFavoriteDto> listMyFavorites(Long userId, long current, long size);
 
-    PageResult<ActivitySignupDto> listAllSignups(long current, long size, Long activityId);
-
-    PageResult<ActivityDonationDto> listAllDonations(long current, long size, Long activityId);
-
-    PageResult<ActivityFavoriteDto> listAllFavorites(long current, long size, Long activityId);
+    /**
+     * A null {@code cursor} pages by {@code current}; any other value (blank for the first page) switches to keyset
+     * paging from {@link PageResult#getNextCursor()}, with no total. In offset mode {@code count} picks how the total
+     * is filled: exact (default), none or approx (see {@link com.example.admin.common.CountMode}).
+     */
+    PageResult<ActivitySignupDto> listAllSignups(
+            long current,
+            long size,
+            Long activityId,
+            String cursor,
+            String count
+    );
+
+    PageResult<ActivityDonationDto> listAllDonations(
+            long current,
+            long size,
+            Long activityId,
+            String cursor,
+            String count
+    );
+
+    PageResult<ActivityFavoriteDto> listAllFavorites(
+            long current,
+            long size,
+            Long activityId,
+            String cursor,
+            String count
+    );
 
     MyActivityStateDto myState(Long userId, Long activityId);
 }
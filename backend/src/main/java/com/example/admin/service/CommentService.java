@@ -13,7 +13,18 @@ public interface CommentService {
 
     void deleteMy(Long userId, Long id);
 
-    PageResult<CommentDto> listAll(long current, long size, String targetType, Long targetId, Long userId);
+    /**
+     * See {@link ActivityService#listAllSignups} for {@code cursor} and {@code count}.
+     */
+    PageResult<CommentDto> listAll(
+            long current,
+            long size,
+            String targetType,
+            Long targetId,
+            Long userId,
+            String cursor,
+            String count
+    );
 
     void deleteAny(Long adminUserId, Long id);
 }
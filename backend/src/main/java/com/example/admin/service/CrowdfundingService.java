@@ -41,5 +41,14 @@ public interface CrowdfundingService {
 
     PageResult<CrowdfundingDonationRecordDto> listMyDonations(Long userId, long current, long size);
 
-    PageResult<CrowdfundingDonationRecordDto> listAllDonations(long current, long size, Long projectId);
+    /**
+     * See {@link ActivityService#listAllSignups} for {@code cursor} and {@code count}.
+     */
+    PageResult<CrowdfundingDonationRecordDto> listAllDonations(
+            long current,
+            long size,
+            Long projectId,
+            String cursor,
+            String count
+    );
 }
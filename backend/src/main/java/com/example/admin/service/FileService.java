@@ -2,6 +2,7 @@ package com.example.admin.service;
 
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.file.FileInfoDto;
+import java.io.InputStream;
 import java.nio.file.Path;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -9,12 +10,52 @@ public interface FileService {
 
     FileInfoDto upload(Long userId, MultipartFile file, String visibility);
 
+    /**
+     * Store a file read from a stream; identical content is stored once and shared between file records.
+     */
+    FileInfoDto upload(Long userId, InputStream content, String filename, String contentType, String visibility);
+
     PageResult<FileInfoDto> listMyFiles(Long userId, long current, long size);
 
-    FileDownload download(Long fileId, Long requesterUserId);
+    /**
+     * @param variant null for the original, or an image variant ("thumb" / "medium"); the original is returned while
+     *                the variant does not exist (yet)
+     */
+    FileDownload download(Long fileId, Long requesterUserId, String variant);
+
+    /**
+     * Anonymous read of a PUBLIC file (or one of its variants), served from the in-memory cache when possible;
+     * PRIVATE files are reported as missing.
+     */
+    FileDownload downloadPublic(Long fileId, String variant);
 
     void delete(Long fileId, Long userId);
 
-    record FileDownload(String originalName, Long size, String contentType, Path absolutePath) {}
+    /**
+     * @param size          bytes on disk
+     * @param lastModified  file mtime (epoch millis)
+     * @param content       in-memory copy of a small cached file, or null to stream from disk
+     * @param variant       image variant actually served, null for the original
+     */
+    record FileDownload(
+            Long fileId,
+            String originalName,
+            long size,
+            String contentType,
+            Path absolutePath,
+            long lastModified,
+            byte[] content,
+            String variant
+    ) {
+
+        public FileDownload withContent(byte[] bytes) {
+            return new FileDownload(fileId, originalName, size, contentType, absolutePath, lastModified, bytes, variant);
+        }
+
+        /** Strong validator: stored files are never rewritten in place, so id + size (+ variant) identifies the bytes. */
+        public String etag() {
+            return "\"" + fileId + "-" + size + (variant == null ? "" : "-" + variant) + "\"";
+        }
+    }
 }
 
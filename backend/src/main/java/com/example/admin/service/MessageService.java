@@ -10,7 +10,10 @@ public interface MessageService {
 
     PageResult<MessageDto> listMy(Long userId, long current, long size);
 
-    PageResult<MessageDto> listAll(long current, long size);
+    /**
+     * See {@link ActivityService#listAllSignups} for {@code cursor} and {@code count}.
+     */
+    PageResult<MessageDto> listAll(long current, long size, String cursor, String count);
 
     MessageDto reply(Long adminUserId, Long messageId, ReplyMessageRequest request);
 }
@@ -2,19 +2,40 @@ package com.example.admin.service;
 
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.notification.AnnounceRequest;
+import com.example.admin.dto.notification.AnnouncementJobDto;
 import com.example.admin.dto.notification.NotificationDto;
+import com.example.admin.websocket.WebSocketMetrics;
 import java.util.List;
 
 public interface NotificationService {
 
-    PageResult<NotificationDto> listMyNotifications(Long userId, long current, long size);
+    /**
+     * See {@link ActivityService#listAllSignups} for {@code cursor} and {@code count}.
+     */
+    PageResult<NotificationDto> listMyNotifications(
+            Long userId,
+            long current,
+            long size,
+            String cursor,
+            String count
+    );
 
     void markRead(Long userId, Long notificationId);
 
-    void announce(Long adminUserId, AnnounceRequest request);
+    /**
+     * Queue an announcement to all users.
+     *
+     * @return announcement job id, see {@link #getAnnouncementJob(Long)}
+     */
+    Long announce(Long adminUserId, AnnounceRequest request);
+
+    AnnouncementJobDto getAnnouncementJob(Long jobId);
 
     void sendToUser(Long userId, String title, String content, String type);
 
     List<NotificationDto> listUnread(Long userId, int limit);
+
+    /** WebSocket delivery counters of this node. */
+    WebSocketMetrics getPushMetrics();
 }
 
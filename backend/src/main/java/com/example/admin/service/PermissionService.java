@@ -3,12 +3,17 @@ package com.example.admin.service;
 import com.example.admin.dto.permission.CreatePermissionRequest;
 import com.example.admin.dto.permission.PermissionDto;
 import com.example.admin.dto.permission.UpdatePermissionRequest;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface PermissionService {
     Set<String> getPermissionsByUserId(Long userId);
 
+    /** Batch variant of {@link #getPermissionsByUserId(Long)}; users without permissions are absent. */
+    Map<Long, Set<String>> getPermissionsByUserIds(Collection<Long> userIds);
+
     List<PermissionDto> listAll();
 
     PermissionDto create(CreatePermissionRequest request);
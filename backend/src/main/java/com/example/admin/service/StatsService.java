@@ -8,6 +8,24 @@ public interface StatsService {
     /** Activity signup count ratio (by activity) within last N days. */
     List<ActivitySignupRatioDto> activitySignupRatio(int days);
 
+    /** Signup ratio computed by a specific engine (rollup / sql); null uses the configured one. */
+    List<ActivitySignupRatioDto> activitySignupRatio(int days, String engine);
+
     /** Income trend (sum of donations) within last N days. */
     List<IncomeTrendDto> incomeTrend(int days);
+
+    /** Income trend computed by a specific engine (rollup / sql / jvm); null uses the configured one. */
+    List<IncomeTrendDto> incomeTrend(int days, String engine);
+
+    /** Signup ratio from the configured engine, read from the database rather than the result cache. */
+    List<ActivitySignupRatioDto> freshActivitySignupRatio(int days);
+
+    /** Income trend from the configured engine, read from the database rather than the result cache. */
+    List<IncomeTrendDto> freshIncomeTrend(int days);
+
+    /** Recompute the daily income rollup of the last N days from raw donations; returns days with income. */
+    int rebuildIncomeRollup(int days);
+
+    /** Recompute the hourly signup buckets of the last N days from raw signups; returns buckets written. */
+    int rebuildSignupBuckets(int days);
 }
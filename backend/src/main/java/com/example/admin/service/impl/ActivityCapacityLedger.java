@@ -0,0 +1,144 @@
+package com.example.admin.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.example.admin.entity.BizActivitySignup;
+import com.example.admin.mapper.BizActivitySignupMapper;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory seat ledger for activity signups.
+ * <p>
+ * Keeps one atomic "occupied seats" counter per activity (SIGNED + CHECKED_IN), seeded from the DB on first touch.
+ * Seats are taken with a CAS loop, so concurrent signups can never push the counter above maxParticipants.
+ * maxParticipants itself is passed in by the caller (it can be changed by admins at any time).
+ * <p>
+ * Transaction aware: a seat taken inside a transaction is given back if that transaction rolls back,
+ * and a seat released inside a transaction is only given back after commit.
+ * <p>
+ * The ledger is per-JVM and only a fast-reject filter: the authoritative check is the conditional
+ * {@code biz_activity.signup_count} update done by the caller. Counters are re-seeded from the DB after
+ * {@link #evict(Long)} and once they are older than {@code capacity-ledger-ttl-ms}, so seats freed on other nodes
+ * are noticed.
+ */
+@Component
+public class ActivityCapacityLedger {
+
+    private static final String STATUS_SIGNED = "SIGNED";
+    private static final String STATUS_CHECKED_IN = "CHECKED_IN";
+
+    private final BizActivitySignupMapper signupMapper;
+    private final long ttlMs;
+    private final ConcurrentMap<Long, Seats> occupiedByActivityId = new ConcurrentHashMap<>();
+
+    public ActivityCapacityLedger(
+            BizActivitySignupMapper signupMapper,
+            @Value("${app.activity.capacity-ledger-ttl-ms:5000}") long ttlMs
+    ) {
+        this.signupMapper = signupMapper;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Try to take one seat. Returns false when the activity is full.
+     */
+    public boolean tryAcquire(Long activityId, int maxParticipants) {
+        if (activityId == null) {
+            return false;
+        }
+        AtomicInteger occupied = occupied(activityId);
+        while (true) {
+            int current = occupied.get();
+            if (current >= maxParticipants) {
+                return false;
+            }
+            if (occupied.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        decrement(activityId);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Give one seat back (e.g. signup canceled).
+     */
+    public void release(Long activityId) {
+        if (activityId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    decrement(activityId);
+                }
+            });
+            return;
+        }
+        decrement(activityId);
+    }
+
+    /**
+     * Remaining seats for the given limit (never negative).
+     */
+    public int remaining(Long activityId, int maxParticipants) {
+        if (activityId == null) {
+            return 0;
+        }
+        AtomicInteger occupied = occupied(activityId);
+        return Math.max(0, maxParticipants - occupied.get());
+    }
+
+    /**
+     * Drop cached state so the next touch re-seeds from the DB (e.g. activity deleted).
+     */
+    public void evict(Long activityId) {
+        if (activityId != null) {
+            occupiedByActivityId.remove(activityId);
+        }
+    }
+
+    private void decrement(Long activityId) {
+        Seats seats = occupiedByActivityId.get(activityId);
+        if (seats != null) {
+            seats.occupied().updateAndGet(v -> v > 0 ? v - 1 : 0);
+        }
+    }
+
+    private AtomicInteger occupied(Long activityId) {
+        long now = System.currentTimeMillis();
+        Seats seats = occupiedByActivityId.get(activityId);
+        if (seats != null && now - seats.loadedAt() < ttlMs) {
+            return seats.occupied();
+        }
+        // Count outside the map: compute() would hold the bin lock (and block other activities) during the query.
+        Seats loaded = load(activityId, now);
+        return occupiedByActivityId.compute(activityId, (id, current) ->
+                current != null && current != seats && now - current.loadedAt() < ttlMs ? current : loaded).occupied();
+    }
+
+    private Seats load(Long activityId, long now) {
+        Long count = signupMapper.selectCount(Wrappers.lambdaQuery(BizActivitySignup.class)
+                .eq(BizActivitySignup::getActivityId, activityId)
+                .in(BizActivitySignup::getStatus, STATUS_SIGNED, STATUS_CHECKED_IN));
+        return new Seats(new AtomicInteger(count == null ? 0 : count.intValue()), now);
+    }
+
+    private record Seats(AtomicInteger occupied, long loadedAt) {}
+}
@@ -0,0 +1,162 @@
+package com.example.admin.service.impl;
+
+import com.example.admin.dto.notification.AnnouncementJobDto;
+import com.example.admin.dto.notification.NotificationDto;
+import com.example.admin.entity.SysAnnouncement;
+import com.example.admin.mapper.SysAnnouncementMapper;
+import com.example.admin.websocket.NotificationBus;
+import com.example.admin.websocket.WebSocketSessionManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes announcements.
+ * <p>
+ * An announcement is one sys_announcement row (read state lives in sys_announcement_read), so the write is O(1)
+ * regardless of the user count. Pushing it to online WebSocket users (via {@link NotificationBus}) runs off the
+ * request thread; the job id is the announcement id and its state is kept in memory (last
+ * {@code announce-job-history} jobs of this node). The job ends in QUEUED once the message has been handed to the
+ * bus: delivery to each session is asynchronous and not tracked per user (offline users read it from the inbox).
+ */
+@Slf4j
+@Component
+public class AnnouncementFanout {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final SysAnnouncementMapper announcementMapper;
+    private final WebSocketSessionManager sessionManager;
+    private final NotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, Job> jobs;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "announcement-fanout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AnnouncementFanout(
+            SysAnnouncementMapper announcementMapper,
+            WebSocketSessionManager sessionManager,
+            NotificationBus notificationBus,
+            ObjectMapper objectMapper,
+            @Value("${app.notification.announce-job-history:100}") int jobHistory
+    ) {
+        this.announcementMapper = announcementMapper;
+        this.sessionManager = sessionManager;
+        this.notificationBus = notificationBus;
+        this.objectMapper = objectMapper;
+
+        int maxJobs = Math.max(1, jobHistory);
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Job> eldest) {
+                return size() > maxJobs;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Store the announcement and queue the push to online users.
+     *
+     * @return job id (= announcement id)
+     */
+    public Long submit(Long adminUserId, String title, String content) {
+        SysAnnouncement announcement = new SysAnnouncement();
+        announcement.setTitle(title);
+        announcement.setContent(content);
+        announcement.setCreatedBy(adminUserId);
+        // Set here rather than left to the column default: the pushed message carries it.
+        announcement.setCreatedAt(LocalDateTime.now());
+        announcementMapper.insert(announcement);
+
+        Job job = new Job(announcement.getId(), title);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, announcement));
+        } catch (RejectedExecutionException e) {
+            // Stored already; clients will pick it up on their next fetch.
+            job.finish(STATUS_FAILED);
+        }
+        return job.id;
+    }
+
+    /**
+     * Progress of a job, or null if unknown (never submitted on this node or already evicted).
+     */
+    public AnnouncementJobDto getJob(Long jobId) {
+        Job job = jobId == null ? null : jobs.get(jobId);
+        return job == null ? null : job.toDto();
+    }
+
+    private void run(Job job, SysAnnouncement announcement) {
+        job.status = STATUS_RUNNING;
+        try {
+            NotificationDto dto = new NotificationDto();
+            dto.setId(announcement.getId());
+            dto.setTitle(announcement.getTitle());
+            dto.setContent(announcement.getContent());
+            dto.setType("ANNOUNCEMENT");
+            dto.setIsRead(0);
+            dto.setCreatedAt(announcement.getCreatedAt());
+
+            job.total = (long) sessionManager.onlineUserCount();
+            notificationBus.broadcast(objectMapper.writeValueAsString(new WsMessage("notification", dto)));
+            job.finish(STATUS_QUEUED);
+        } catch (Exception e) {
+            log.warn("Announcement push failed: id={}", job.id, e);
+            job.finish(STATUS_FAILED);
+        }
+    }
+
+    private static final class Job {
+        private final Long id;
+        private final String title;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile String status = STATUS_PENDING;
+        private volatile Long total;
+        private volatile LocalDateTime finishedAt;
+
+        private Job(Long id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+
+        private void finish(String finalStatus) {
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        private AnnouncementJobDto toDto() {
+            AnnouncementJobDto dto = new AnnouncementJobDto();
+            dto.setId(id);
+            dto.setTitle(title);
+            dto.setStatus(status);
+            dto.setTotal(total);
+            dto.setCreatedAt(createdAt);
+            dto.setFinishedAt(finishedAt);
+            return dto;
+        }
+    }
+
+    private record WsMessage(String type, Object data) {}
+}
@@ -1,8 +1,9 @@
 package com.example.admin.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.admin.common.CountMode;
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.activity.ActivityDetailDto;
 import com.example.admin.dto.activity.ActivityDonationDto;
@@ -56,6 +57,13 @@ public class DbActivityService implements ActivityService {
     private final BizActivityFavoriteMapper favoriteMapper;
     private final SysFileMapper fileMapper;
     private final SysUserMapper userMapper;
+    private final ActivityCapacityLedger capacityLedger;
+    private final ActivityDonationCounter donationCounter;
+    private final IncomeDailyRollup incomeDailyRollup;
+    private final ActivitySignupBuckets signupBuckets;
+    private final StatsLiveFeed statsLiveFeed;
+    private final StatsResultCache statsResultCache;
+    private final PagedQueries pagedQueries;
 
     public DbActivityService(
             BizActivityMapper activityMapper,
@@ -63,7 +71,14 @@ public class DbActivityService implements ActivityService {
             BizActivityDonationMapper donationMapper,
             BizActivityFavoriteMapper favoriteMapper,
             SysFileMapper fileMapper,
-            SysUserMapper userMapper
+            SysUserMapper userMapper,
+            ActivityCapacityLedger capacityLedger,
+            ActivityDonationCounter donationCounter,
+            IncomeDailyRollup incomeDailyRollup,
+            ActivitySignupBuckets signupBuckets,
+            StatsLiveFeed statsLiveFeed,
+            StatsResultCache statsResultCache,
+            PagedQueries pagedQueries
     ) {
         this.activityMapper = activityMapper;
         this.signupMapper = signupMapper;
@@ -71,6 +86,13 @@ public class DbActivityService implements ActivityService {
         this.favoriteMapper = favoriteMapper;
         this.fileMapper = fileMapper;
         this.userMapper = userMapper;
+        this.capacityLedger = capacityLedger;
+        this.donationCounter = donationCounter;
+        this.incomeDailyRollup = incomeDailyRollup;
+        this.signupBuckets = signupBuckets;
+        this.statsLiveFeed = statsLiveFeed;
+        this.statsResultCache = statsResultCache;
+        this.pagedQueries = pagedQueries;
     }
 
     @Override
@@ -286,6 +308,7 @@ public class DbActivityService implements ActivityService {
         if (deleted <= 0) {
             throw new BusinessException(404, "活动不存在");
         }
+        capacityLedger.evict(id);
     }
 
     @Override
@@ -307,28 +330,39 @@ public class DbActivityService implements ActivityService {
                 .eq(BizActivitySignup::getUserId, userId));
         if (existing != null) {
             if (STATUS_CANCELED.equalsIgnoreCase(existing.getStatus())) {
-                ensureCapacity(activityId, activity.getMaxParticipants());
-                BizActivitySignup update = new BizActivitySignup();
-                update.setId(existing.getId());
-                update.setStatus(STATUS_SIGNED);
-                update.setSignedAt(LocalDateTime.now());
-                update.setCanceledAt(null);
-                update.setCheckedInAt(null);
-                signupMapper.updateById(update);
+                LocalDateTime signedAt = signupTime();
+                // Only the request that actually flips the row takes a seat; a double submit finds it SIGNED.
+                int changed = signupMapper.update(null, Wrappers.lambdaUpdate(BizActivitySignup.class)
+                        .set(BizActivitySignup::getStatus, STATUS_SIGNED)
+                        .set(BizActivitySignup::getSignedAt, signedAt)
+                        .set(BizActivitySignup::getCanceledAt, null)
+                        .set(BizActivitySignup::getCheckedInAt, null)
+                        .eq(BizActivitySignup::getId, existing.getId())
+                        .eq(BizActivitySignup::getStatus, existing.getStatus()));
+                if (changed == 1) {
+                    // Throwing here rolls the status change back with the transaction.
+                    ensureCapacity(activity);
+                    signupBuckets.signedUp(activityId, signedAt);
+                    statsLiveFeed.signupChanged(activityId, 1, signedAt);
+                    statsResultCache.invalidate(StatsResultCache.SIGNUPS);
+                }
                 BizActivitySignup latest = signupMapper.selectById(existing.getId());
                 return toSignupDto(latest, activity, null);
             }
             return toSignupDto(existing, activity, null);
         }
 
-        ensureCapacity(activityId, activity.getMaxParticipants());
+        ensureCapacity(activity);
 
         BizActivitySignup signup = new BizActivitySignup();
         signup.setActivityId(activityId);
         signup.setUserId(userId);
         signup.setStatus(STATUS_SIGNED);
-        signup.setSignedAt(LocalDateTime.now());
+        signup.setSignedAt(signupTime());
         signupMapper.insert(signup);
+        signupBuckets.signedUp(activityId, signup.getSignedAt());
+        statsLiveFeed.signupChanged(activityId, 1, signup.getSignedAt());
+        statsResultCache.invalidate(StatsResultCache.SIGNUPS);
 
         BizActivitySignup created = signupMapper.selectById(signup.getId());
         return toSignupDto(created, activity, null);
@@ -360,11 +394,19 @@ public class DbActivityService implements ActivityService {
             throw new BusinessException(400, "已签到，无法取消报名");
         }
 
-        BizActivitySignup update = new BizActivitySignup();
-        update.setId(signup.getId());
-        update.setStatus(STATUS_CANCELED);
-        update.setCanceledAt(now);
-        signupMapper.updateById(update);
+        // Conditional on the status read above: of two concurrent cancels only one releases the seat.
+        int changed = signupMapper.update(null, Wrappers.lambdaUpdate(BizActivitySignup.class)
+                .set(BizActivitySignup::getStatus, STATUS_CANCELED)
+                .set(BizActivitySignup::getCanceledAt, now)
+                .eq(BizActivitySignup::getId, signup.getId())
+                .eq(BizActivitySignup::getStatus, signup.getStatus()));
+        if (changed == 1) {
+            activityMapper.releaseSeat(activityId);
+            capacityLedger.release(activityId);
+            signupBuckets.canceled(activityId, signup.getSignedAt());
+            statsLiveFeed.signupChanged(activityId, -1, signup.getSignedAt());
+            statsResultCache.invalidate(StatsResultCache.SIGNUPS);
+        }
 
         BizActivitySignup latest = signupMapper.selectById(signup.getId());
         return toSignupDto(latest, activity, null);
@@ -434,13 +476,15 @@ public class DbActivityService implements ActivityService {
         donation.setUserId(userId);
         donation.setAmount(amount);
         donation.setRemark(trimToNull(request.getRemark()));
+        // Stamped here rather than by the DB default: the income rollup and the trend window use the same clock.
+        donation.setCreatedAt(LocalDateTime.now());
         donationMapper.insert(donation);
 
-        // Maintain donated_amount for progress visualization.
-        UpdateWrapper<BizActivity> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("id", activityId);
-        updateWrapper.setSql("donated_amount = donated_amount + " + amount);
-        activityMapper.update(null, updateWrapper);
+        // Maintain donated_amount for progress visualization (striped to avoid a single hot row).
+        donationCounter.add(activityId, amount);
+        incomeDailyRollup.add(donation.getCreatedAt(), amount);
+        statsLiveFeed.donation(amount);
+        statsResultCache.invalidate(StatsResultCache.INCOME);
 
         BizActivityDonation created = donationMapper.selectById(donation.getId());
         return toDonationDto(created, activity, null);
@@ -531,39 +575,69 @@ public class DbActivityService implements ActivityService {
     }
 
     @Override
-    public PageResult<ActivitySignupDto> listAllSignups(long current, long size, Long activityId) {
-        Page<BizActivitySignup> page = signupMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(BizActivitySignup.class)
-                        .eq(activityId != null, BizActivitySignup::getActivityId, activityId)
-                        .orderByDesc(BizActivitySignup::getSignedAt)
-                        .orderByDesc(BizActivitySignup::getId)
-        );
-        return toSignupPageResult(page.getRecords(), page, false);
+    public PageResult<ActivitySignupDto> listAllSignups(
+            long current,
+            long size,
+            Long activityId,
+            String cursor,
+            String count
+    ) {
+        CountMode countMode = CountMode.parse(count);
+        LambdaQueryWrapper<BizActivitySignup> query = Wrappers.lambdaQuery(BizActivitySignup.class)
+                .eq(activityId != null, BizActivitySignup::getActivityId, activityId)
+                .orderByDesc(BizActivitySignup::getSignedAt)
+                .orderByDesc(BizActivitySignup::getId);
+        if (cursor != null) {
+            return pagedQueries.keyset(signupMapper, query, BizActivitySignup::getSignedAt, BizActivitySignup::getId, size, cursor)
+                    .map(rows -> toSignupDtos(rows, false));
+        }
+        String filterKey = activityId == null ? null : "activityId=" + activityId;
+        return pagedQueries.page(signupMapper, query, current, size, countMode, filterKey)
+                .map(rows -> toSignupDtos(rows, false));
     }
 
     @Override
-    public PageResult<ActivityDonationDto> listAllDonations(long current, long size, Long activityId) {
-        Page<BizActivityDonation> page = donationMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(BizActivityDonation.class)
-                        .eq(activityId != null, BizActivityDonation::getActivityId, activityId)
-                        .orderByDesc(BizActivityDonation::getCreatedAt)
-                        .orderByDesc(BizActivityDonation::getId)
-        );
-        return toDonationPageResult(page.getRecords(), page, false);
+    public PageResult<ActivityDonationDto> listAllDonations(
+            long current,
+            long size,
+            Long activityId,
+            String cursor,
+            String count
+    ) {
+        CountMode countMode = CountMode.parse(count);
+        LambdaQueryWrapper<BizActivityDonation> query = Wrappers.lambdaQuery(BizActivityDonation.class)
+                .eq(activityId != null, BizActivityDonation::getActivityId, activityId)
+                .orderByDesc(BizActivityDonation::getCreatedAt)
+                .orderByDesc(BizActivityDonation::getId);
+        if (cursor != null) {
+            return pagedQueries.keyset(donationMapper, query, BizActivityDonation::getCreatedAt, BizActivityDonation::getId, size, cursor)
+                    .map(rows -> toDonationDtos(rows, false));
+        }
+        String filterKey = activityId == null ? null : "activityId=" + activityId;
+        return pagedQueries.page(donationMapper, query, current, size, countMode, filterKey)
+                .map(rows -> toDonationDtos(rows, false));
     }
 
     @Override
-    public PageResult<ActivityFavoriteDto> listAllFavorites(long current, long size, Long activityId) {
-        Page<BizActivityFavorite> page = favoriteMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(BizActivityFavorite.class)
-                        .eq(activityId != null, BizActivityFavorite::getActivityId, activityId)
-                        .orderByDesc(BizActivityFavorite::getCreatedAt)
-                        .orderByDesc(BizActivityFavorite::getId)
-        );
-        return toFavoritePageResult(page.getRecords(), page, false);
+    public PageResult<ActivityFavoriteDto> listAllFavorites(
+            long current,
+            long size,
+            Long activityId,
+            String cursor,
+            String count
+    ) {
+        CountMode countMode = CountMode.parse(count);
+        LambdaQueryWrapper<BizActivityFavorite> query = Wrappers.lambdaQuery(BizActivityFavorite.class)
+                .eq(activityId != null, BizActivityFavorite::getActivityId, activityId)
+                .orderByDesc(BizActivityFavorite::getCreatedAt)
+                .orderByDesc(BizActivityFavorite::getId);
+        if (cursor != null) {
+            return pagedQueries.keyset(favoriteMapper, query, BizActivityFavorite::getCreatedAt, BizActivityFavorite::getId, size, cursor)
+                    .map(rows -> toFavoriteDtos(rows, false));
+        }
+        String filterKey = activityId == null ? null : "activityId=" + activityId;
+        return pagedQueries.page(favoriteMapper, query, current, size, countMode, filterKey)
+                .map(rows -> toFavoriteDtos(rows, false));
     }
 
     @Override
@@ -589,7 +663,8 @@ public class DbActivityService implements ActivityService {
     }
 
     private PageResult<ActivityDto> toPageResult(List<BizActivity> records, Page<?> page) {
-        List<ActivityDto> dtos = records.stream().map(this::toDto).toList();
+        Map<Long, BigDecimal> pendingDonated = donationCounter.pendingAmounts(records.stream().map(BizActivity::getId).toList());
+        List<ActivityDto> dtos = records.stream().map(a -> toDto(a, pendingDonated.get(a.getId()))).toList();
         PageResult<ActivityDto> result = new PageResult<>();
         result.setRecords(dtos);
         result.setTotal(page.getTotal());
@@ -599,57 +674,63 @@ public class DbActivityService implements ActivityService {
     }
 
     private PageResult<ActivitySignupDto> toSignupPageResult(List<BizActivitySignup> records, Page<?> page, boolean forMy) {
+        PageResult<ActivitySignupDto> result = new PageResult<>();
+        result.setRecords(toSignupDtos(records, forMy));
+        result.setTotal(page.getTotal());
+        result.setCurrent(page.getCurrent());
+        result.setSize(page.getSize());
+        return result;
+    }
+
+    private List<ActivitySignupDto> toSignupDtos(List<BizActivitySignup> records, boolean forMy) {
         Map<Long, BizActivity> activities = loadActivities(records.stream().map(BizActivitySignup::getActivityId).toList());
         Map<Long, SysUser> users = forMy
                 ? Map.of()
                 : loadUsers(records.stream().map(BizActivitySignup::getUserId).toList());
 
-        List<ActivitySignupDto> dtos = records.stream()
+        return records.stream()
                 .map(r -> toSignupDto(r, activities.get(r.getActivityId()), users.get(r.getUserId())))
                 .toList();
+    }
 
-        PageResult<ActivitySignupDto> result = new PageResult<>();
-        result.setRecords(dtos);
+    private PageResult<ActivityDonationDto> toDonationPageResult(List<BizActivityDonation> records, Page<?> page, boolean forMy) {
+        PageResult<ActivityDonationDto> result = new PageResult<>();
+        result.setRecords(toDonationDtos(records, forMy));
         result.setTotal(page.getTotal());
         result.setCurrent(page.getCurrent());
         result.setSize(page.getSize());
         return result;
     }
 
-    private PageResult<ActivityDonationDto> toDonationPageResult(List<BizActivityDonation> records, Page<?> page, boolean forMy) {
+    private List<ActivityDonationDto> toDonationDtos(List<BizActivityDonation> records, boolean forMy) {
         Map<Long, BizActivity> activities = loadActivities(records.stream().map(BizActivityDonation::getActivityId).toList());
         Map<Long, SysUser> users = forMy
                 ? Map.of()
                 : loadUsers(records.stream().map(BizActivityDonation::getUserId).toList());
 
-        List<ActivityDonationDto> dtos = records.stream()
+        return records.stream()
                 .map(r -> toDonationDto(r, activities.get(r.getActivityId()), users.get(r.getUserId())))
                 .toList();
+    }
 
-        PageResult<ActivityDonationDto> result = new PageResult<>();
-        result.setRecords(dtos);
+    private PageResult<ActivityFavoriteDto> toFavoritePageResult(List<BizActivityFavorite> records, Page<?> page, boolean forMy) {
+        PageResult<ActivityFavoriteDto> result = new PageResult<>();
+        result.setRecords(toFavoriteDtos(records, forMy));
         result.setTotal(page.getTotal());
         result.setCurrent(page.getCurrent());
         result.setSize(page.getSize());
         return result;
     }
 
-    private PageResult<ActivityFavoriteDto> toFavoritePageResult(List<BizActivityFavorite> records, Page<?> page, boolean forMy) {
+    private List<ActivityFavoriteDto> toFavoriteDtos(List<BizActivityFavorite> records, boolean forMy) {
         Map<Long, BizActivity> activities = loadActivities(records.stream().map(BizActivityFavorite::getActivityId).toList());
         Map<Long, SysUser> users = forMy
                 ? Map.of()
                 : loadUsers(records.stream().map(BizActivityFavorite::getUserId).toList());
 
-        List<ActivityFavoriteDto> dtos = records.stream()
+        return records.stream()
                 .map(r -> toFavoriteDto(r, activities.get(r.getActivityId()), users.get(r.getUserId())))
                 .toList();
-
-        PageResult<ActivityFavoriteDto> result = new PageResult<>();
-        result.setRecords(dtos);
-        result.setTotal(page.getTotal());
-        result.setCurrent(page.getCurrent());
-        result.setSize(page.getSize());
-        return result;
     }
 
     private Map<Long, BizActivity> loadActivities(List<Long> activityIds) {
@@ -678,7 +759,7 @@ public class DbActivityService implements ActivityService {
         return map;
     }
 
-    private ActivityDto toDto(BizActivity activity) {
+    private ActivityDto toDto(BizActivity activity, BigDecimal pendingDonated) {
         if (activity == null) {
             return null;
         }
@@ -693,7 +774,9 @@ public class DbActivityService implements ActivityService {
         dto.setDonateEnabled(normalizeEnabledFlag(activity.getDonateEnabled()));
         dto.setMaxParticipants(activity.getMaxParticipants());
         dto.setDonationTarget(activity.getDonationTarget());
-        dto.setDonatedAmount(activity.getDonatedAmount());
+        dto.setDonatedAmount(pendingDonated == null || activity.getDonatedAmount() == null
+                ? activity.getDonatedAmount()
+                : activity.getDonatedAmount().add(pendingDonated));
         dto.setEnabled(normalizeEnabledFlag(activity.getEnabled()));
         dto.setCreatedAt(activity.getCreatedAt());
         return dto;
@@ -701,7 +784,10 @@ public class DbActivityService implements ActivityService {
 
     private ActivityDetailDto toDetailDto(BizActivity activity) {
         ActivityDetailDto dto = new ActivityDetailDto();
-        ActivityDto base = toDto(activity);
+        BigDecimal pendingDonated = activity == null
+                ? null
+                : donationCounter.pendingAmounts(List.of(activity.getId())).get(activity.getId());
+        ActivityDto base = toDto(activity, pendingDonated);
         if (base != null) {
             dto.setId(base.getId());
             dto.setTitle(base.getTitle());
@@ -826,18 +912,35 @@ public class DbActivityService implements ActivityService {
         return activity;
     }
 
-    private void ensureCapacity(Long activityId, Integer maxParticipants) {
-        if (maxParticipants == null || maxParticipants <= 0) {
-            return;
+    /**
+     * Take a seat: the in-memory ledger rejects a full activity without touching the DB, then the conditional
+     * signup_count update decides (it also sees seats taken on other nodes). Both are undone if the signup rolls back.
+     */
+    private void ensureCapacity(BizActivity activity) {
+        Long activityId = activity.getId();
+        Integer maxParticipants = activity.getMaxParticipants();
+        boolean limited = maxParticipants != null && maxParticipants > 0;
+        if (limited && !capacityLedger.tryAcquire(activityId, maxParticipants)) {
+            throw new BusinessException(400, "报名人数已满");
         }
-        Long count = signupMapper.selectCount(Wrappers.lambdaQuery(BizActivitySignup.class)
-                .eq(BizActivitySignup::getActivityId, activityId)
-                .in(BizActivitySignup::getStatus, STATUS_SIGNED, STATUS_CHECKED_IN));
-        if (count != null && count >= maxParticipants) {
+        if (activity.getSignupCount() == null) {
+            // Once set, signup_count is never reset to NULL, so only activities that still show NULL need seeding.
+            activityMapper.seedSignupCount(activityId);
+        }
+        if (activityMapper.takeSeat(activityId, limited ? maxParticipants : null) == 0) {
+            // Seats went to another node; re-seed this node's ledger from the DB next time.
+            capacityLedger.evict(activityId);
             throw new BusinessException(400, "报名人数已满");
         }
     }
 
+    /**
+     * Whole seconds, so the stored signed_at (DATETIME rounds fractions) stays in the hour bucket it was counted in.
+     */
+    private LocalDateTime signupTime() {
+        return LocalDateTime.now().withNano(0);
+    }
+
     private void validateTimeRange(LocalDateTime startTime, LocalDateTime endTime) {
         if (startTime == null || endTime == null) {
             throw new BusinessException(400, "开始/结束时间不能为空");
@@ -18,6 +18,7 @@ import com.example.admin.mapper.SysRoleMapper;
 import com.example.admin.mapper.SysUserMapper;
 import com.example.admin.mapper.SysUserRoleMapper;
 import com.example.admin.security.JwtTokenProvider;
+import com.example.admin.security.PermissionBitmapCodec;
 import com.example.admin.security.UserPrincipal;
 import com.example.admin.service.AuthService;
 import com.example.admin.service.FileService;
@@ -40,6 +41,7 @@ public class DbAuthService implements AuthService {
     private final UserService userService;
     private final FileService fileService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final PermissionBitmapCodec permissionBitmapCodec;
     private final PasswordEncoder passwordEncoder;
 
     public DbAuthService(
@@ -49,6 +51,7 @@ public class DbAuthService implements AuthService {
             UserService userService,
             FileService fileService,
             JwtTokenProvider jwtTokenProvider,
+            PermissionBitmapCodec permissionBitmapCodec,
             PasswordEncoder passwordEncoder
     ) {
         this.userMapper = userMapper;
@@ -57,6 +60,7 @@ public class DbAuthService implements AuthService {
         this.userService = userService;
         this.fileService = fileService;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.permissionBitmapCodec = permissionBitmapCodec;
         this.passwordEncoder = passwordEncoder;
     }
 
@@ -73,7 +77,8 @@ public class DbAuthService implements AuthService {
         UserDto userDto = userService.getById(user.getId());
         List<String> roleCodes = userDto.getRoles() == null ? List.of() : userDto.getRoles().stream().map(r -> r.getCode()).toList();
 
-        String accessToken = jwtTokenProvider.generateAccessToken(user.getId(), user.getUsername(), roleCodes);
+        String accessToken = jwtTokenProvider.generateAccessToken(
+                user.getId(), user.getUsername(), roleCodes, permissionBitmapCodec.issue(user.getId()));
         String refreshToken = jwtTokenProvider.generateRefreshToken(user.getId());
 
         LoginResponseData data = new LoginResponseData();
@@ -117,7 +122,8 @@ public class DbAuthService implements AuthService {
         UserDto userDto = userService.getById(user.getId());
         List<String> roleCodes = userDto.getRoles() == null ? List.of() : userDto.getRoles().stream().map(r -> r.getCode()).toList();
 
-        String accessToken = jwtTokenProvider.generateAccessToken(user.getId(), user.getUsername(), roleCodes);
+        String accessToken = jwtTokenProvider.generateAccessToken(
+                user.getId(), user.getUsername(), roleCodes, permissionBitmapCodec.issue(user.getId()));
         String refreshToken = jwtTokenProvider.generateRefreshToken(user.getId());
 
         LoginResponseData data = new LoginResponseData();
@@ -140,7 +146,7 @@ public class DbAuthService implements AuthService {
             throw new BadCredentialsException("refresh token invalid");
         }
 
-        Long userId = jwtTokenProvider.getUserIdFromToken(refreshToken);
+        Long userId = jwtTokenProvider.getUserId(claims);
         if (userId == null) {
             throw new BadCredentialsException("refresh token invalid");
         }
@@ -153,7 +159,8 @@ public class DbAuthService implements AuthService {
         UserDto userDto = userService.getById(userId);
         List<String> roleCodes = userDto.getRoles() == null ? List.of() : userDto.getRoles().stream().map(r -> r.getCode()).toList();
 
-        String newAccessToken = jwtTokenProvider.generateAccessToken(userId, user.getUsername(), roleCodes);
+        String newAccessToken = jwtTokenProvider.generateAccessToken(
+                userId, user.getUsername(), roleCodes, permissionBitmapCodec.issue(userId));
         String newRefreshToken = jwtTokenProvider.generateRefreshToken(userId);
 
         RefreshResponseData data = new RefreshResponseData();
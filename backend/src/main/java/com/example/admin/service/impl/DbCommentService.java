@@ -1,7 +1,9 @@
 package com.example.admin.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.admin.common.CountMode;
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.comment.CommentDto;
 import com.example.admin.dto.comment.CreateCommentRequest;
@@ -28,11 +30,18 @@ public class DbCommentService implements CommentService {
     private final BizCommentMapper commentMapper;
     private final BizStoryMapper storyMapper;
     private final SysUserMapper userMapper;
+    private final PagedQueries pagedQueries;
 
-    public DbCommentService(BizCommentMapper commentMapper, BizStoryMapper storyMapper, SysUserMapper userMapper) {
+    public DbCommentService(
+            BizCommentMapper commentMapper,
+            BizStoryMapper storyMapper,
+            SysUserMapper userMapper,
+            PagedQueries pagedQueries
+    ) {
         this.commentMapper = commentMapper;
         this.storyMapper = storyMapper;
         this.userMapper = userMapper;
+        this.pagedQueries = pagedQueries;
     }
 
     @Override
@@ -141,19 +150,32 @@ public class DbCommentService implements CommentService {
     }
 
     @Override
-    public PageResult<CommentDto> listAll(long current, long size, String targetType, Long targetId, Long userId) {
+    public PageResult<CommentDto> listAll(
+            long current,
+            long size,
+            String targetType,
+            Long targetId,
+            Long userId,
+            String cursor,
+            String count
+    ) {
         String tt = targetType == null || targetType.isBlank() ? null : normalizeTargetType(targetType);
+        CountMode countMode = CountMode.parse(count);
 
-        Page<BizComment> page = commentMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(BizComment.class)
-                        .eq(tt != null, BizComment::getTargetType, tt)
-                        .eq(targetId != null, BizComment::getTargetId, targetId)
-                        .eq(userId != null, BizComment::getUserId, userId)
-                        .orderByDesc(BizComment::getCreatedAt)
-                        .orderByDesc(BizComment::getId)
-        );
-        return toPageResult(page.getRecords(), page);
+        LambdaQueryWrapper<BizComment> query = Wrappers.lambdaQuery(BizComment.class)
+                .eq(tt != null, BizComment::getTargetType, tt)
+                .eq(targetId != null, BizComment::getTargetId, targetId)
+                .eq(userId != null, BizComment::getUserId, userId)
+                .orderByDesc(BizComment::getCreatedAt)
+                .orderByDesc(BizComment::getId);
+        if (cursor != null) {
+            return pagedQueries.keyset(commentMapper, query, BizComment::getCreatedAt, BizComment::getId, size, cursor)
+                    .map(this::toDtos);
+        }
+        String filterKey = tt == null && targetId == null && userId == null
+                ? null
+                : "targetType=" + tt + ",targetId=" + targetId + ",userId=" + userId;
+        return pagedQueries.page(commentMapper, query, current, size, countMode, filterKey).map(this::toDtos);
     }
 
     @Override
@@ -172,6 +194,15 @@ public class DbCommentService implements CommentService {
     }
 
     private PageResult<CommentDto> toPageResult(List<BizComment> records, Page<?> page) {
+        PageResult<CommentDto> result = new PageResult<>();
+        result.setRecords(toDtos(records));
+        result.setTotal(page.getTotal());
+        result.setCurrent(page.getCurrent());
+        result.setSize(page.getSize());
+        return result;
+    }
+
+    private List<CommentDto> toDtos(List<BizComment> records) {
         List<Long> userIds = records.stream()
                 .map(BizComment::getUserId)
                 .filter(v -> v != null)
@@ -197,16 +228,9 @@ public class DbCommentService implements CommentService {
             }
         }
 
-        List<CommentDto> dtos = records.stream()
+        return records.stream()
                 .map(r -> toDto(r, userMap.get(r.getUserId()), storyMap.get(r.getTargetId())))
                 .toList();
-
-        PageResult<CommentDto> result = new PageResult<>();
-        result.setRecords(dtos);
-        result.setTotal(page.getTotal());
-        result.setCurrent(page.getCurrent());
-        result.setSize(page.getSize());
-        return result;
     }
 
     private CommentDto toDto(BizComment comment, SysUser user, BizStory story) {
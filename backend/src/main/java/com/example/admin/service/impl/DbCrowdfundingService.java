@@ -1,7 +1,9 @@
 package com.example.admin.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.admin.common.CountMode;
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.crowdfunding.CreateCrowdfundingDonationRequest;
 import com.example.admin.dto.crowdfunding.CreateCrowdfundingProjectRequest;
@@ -50,17 +52,32 @@ public class DbCrowdfundingService implements CrowdfundingService {
     private final BizCrowdfundingDonationMapper donationMapper;
     private final SysFileMapper fileMapper;
     private final SysUserMapper userMapper;
+    private final CrowdfundingRaisedAmountAggregator raisedAmountAggregator;
+    private final IncomeDailyRollup incomeDailyRollup;
+    private final StatsLiveFeed statsLiveFeed;
+    private final StatsResultCache statsResultCache;
+    private final PagedQueries pagedQueries;
 
     public DbCrowdfundingService(
             BizCrowdfundingProjectMapper projectMapper,
             BizCrowdfundingDonationMapper donationMapper,
             SysFileMapper fileMapper,
-            SysUserMapper userMapper
+            SysUserMapper userMapper,
+            CrowdfundingRaisedAmountAggregator raisedAmountAggregator,
+            IncomeDailyRollup incomeDailyRollup,
+            StatsLiveFeed statsLiveFeed,
+            StatsResultCache statsResultCache,
+            PagedQueries pagedQueries
     ) {
         this.projectMapper = projectMapper;
         this.donationMapper = donationMapper;
         this.fileMapper = fileMapper;
         this.userMapper = userMapper;
+        this.raisedAmountAggregator = raisedAmountAggregator;
+        this.incomeDailyRollup = incomeDailyRollup;
+        this.statsLiveFeed = statsLiveFeed;
+        this.statsResultCache = statsResultCache;
+        this.pagedQueries = pagedQueries;
     }
 
     @Override
@@ -449,14 +466,16 @@ public class DbCrowdfundingService implements CrowdfundingService {
         donation.setAmount(amount);
         donation.setIsAnonymous(request.getAnonymous() != null && request.getAnonymous() ? 1 : 0);
         donation.setRemark(trimToNull(request.getRemark()));
+        // Stamped here rather than by the DB default: the income rollup and the trend window use the same clock.
+        donation.setCreatedAt(LocalDateTime.now());
 
         donationMapper.insert(donation);
 
-        BigDecimal currentRaised = project.getRaisedAmount() == null ? BigDecimal.ZERO : project.getRaisedAmount();
-        BizCrowdfundingProject update = new BizCrowdfundingProject();
-        update.setId(projectId);
-        update.setRaisedAmount(currentRaised.add(amount));
-        projectMapper.updateById(update);
+        // Atomic increment (no read-modify-write); optionally coalesced per project (write-behind).
+        raisedAmountAggregator.add(projectId, amount);
+        incomeDailyRollup.add(donation.getCreatedAt(), amount);
+        statsLiveFeed.donation(amount);
+        statsResultCache.invalidate(StatsResultCache.INCOME);
 
         CrowdfundingDonationDto dto = new CrowdfundingDonationDto();
         dto.setId(donation.getId());
@@ -485,15 +504,25 @@ public class DbCrowdfundingService implements CrowdfundingService {
     }
 
     @Override
-    public PageResult<CrowdfundingDonationRecordDto> listAllDonations(long current, long size, Long projectId) {
-        Page<BizCrowdfundingDonation> page = donationMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(BizCrowdfundingDonation.class)
-                        .eq(projectId != null, BizCrowdfundingDonation::getProjectId, projectId)
-                        .orderByDesc(BizCrowdfundingDonation::getCreatedAt)
-                        .orderByDesc(BizCrowdfundingDonation::getId)
-        );
-        return toDonationRecordPageResult(page.getRecords(), page, false);
+    public PageResult<CrowdfundingDonationRecordDto> listAllDonations(
+            long current,
+            long size,
+            Long projectId,
+            String cursor,
+            String count
+    ) {
+        CountMode countMode = CountMode.parse(count);
+        LambdaQueryWrapper<BizCrowdfundingDonation> query = Wrappers.lambdaQuery(BizCrowdfundingDonation.class)
+                .eq(projectId != null, BizCrowdfundingDonation::getProjectId, projectId)
+                .orderByDesc(BizCrowdfundingDonation::getCreatedAt)
+                .orderByDesc(BizCrowdfundingDonation::getId);
+        if (cursor != null) {
+            return pagedQueries.keyset(donationMapper, query, BizCrowdfundingDonation::getCreatedAt, BizCrowdfundingDonation::getId, size, cursor)
+                    .map(rows -> toDonationRecordDtos(rows, false));
+        }
+        String filterKey = projectId == null ? null : "projectId=" + projectId;
+        return pagedQueries.page(donationMapper, query, current, size, countMode, filterKey)
+                .map(rows -> toDonationRecordDtos(rows, false));
     }
 
     private PageResult<CrowdfundingProjectDto> toPageResult(List<BizCrowdfundingProject> records, Page<?> page) {
@@ -550,6 +579,15 @@ public class DbCrowdfundingService implements CrowdfundingService {
             Page<?> page,
             boolean forMy
     ) {
+        PageResult<CrowdfundingDonationRecordDto> result = new PageResult<>();
+        result.setRecords(toDonationRecordDtos(records, forMy));
+        result.setTotal(page.getTotal());
+        result.setCurrent(page.getCurrent());
+        result.setSize(page.getSize());
+        return result;
+    }
+
+    private List<CrowdfundingDonationRecordDto> toDonationRecordDtos(List<BizCrowdfundingDonation> records, boolean forMy) {
         Map<Long, BizCrowdfundingProject> projects = loadProjects(
                 records.stream().map(BizCrowdfundingDonation::getProjectId).toList()
         );
@@ -557,16 +595,9 @@ public class DbCrowdfundingService implements CrowdfundingService {
                 ? Map.of()
                 : loadUsers(records.stream().map(BizCrowdfundingDonation::getUserId).toList());
 
-        List<CrowdfundingDonationRecordDto> dtos = records.stream()
+        return records.stream()
                 .map(r -> toDonationRecordDto(r, projects.get(r.getProjectId()), users.get(r.getUserId())))
                 .toList();
-
-        PageResult<CrowdfundingDonationRecordDto> result = new PageResult<>();
-        result.setRecords(dtos);
-        result.setTotal(page.getTotal());
-        result.setCurrent(page.getCurrent());
-        result.setSize(page.getSize());
-        return result;
     }
 
     private CrowdfundingDonationRecordDto toDonationRecordDto(
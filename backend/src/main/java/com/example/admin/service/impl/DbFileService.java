@@ -1,23 +1,32 @@
 package com.example.admin.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.file.FileInfoDto;
 import com.example.admin.entity.SysFile;
+import com.example.admin.entity.SysFileObject;
 import com.example.admin.exception.BusinessException;
 import com.example.admin.mapper.SysFileMapper;
+import com.example.admin.mapper.SysFileObjectMapper;
 import com.example.admin.service.FileService;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.stereotype.Service;
@@ -27,14 +36,30 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 public class DbFileService implements FileService {
 
+    private static final String TEMP_DIR = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int STORE_ATTEMPTS = 5;
+
     private final SysFileMapper fileMapper;
+    private final SysFileObjectMapper fileObjectMapper;
+    private final PublicFileCache publicFileCache;
+    private final ImageDerivatives imageDerivatives;
     private final Path storageRoot;
+    private final long maxUploadBytes;
 
     public DbFileService(
             SysFileMapper fileMapper,
-            @Value("${app.file.storage-path:./storage}") String storagePath
+            SysFileObjectMapper fileObjectMapper,
+            PublicFileCache publicFileCache,
+            ImageDerivatives imageDerivatives,
+            @Value("${app.file.storage-path:./storage}") String storagePath,
+            @Value("${app.file.max-upload-bytes:10485760}") long maxUploadBytes
     ) {
         this.fileMapper = fileMapper;
+        this.fileObjectMapper = fileObjectMapper;
+        this.publicFileCache = publicFileCache;
+        this.imageDerivatives = imageDerivatives;
+        this.maxUploadBytes = maxUploadBytes;
         this.storageRoot = Paths.get(storagePath).toAbsolutePath().normalize();
     }
 
@@ -46,41 +71,51 @@ public class DbFileService implements FileService {
         if (file == null || file.isEmpty()) {
             throw new BusinessException(400, "文件不能为空");
         }
+        try (InputStream in = file.getInputStream()) {
+            return upload(userId, in, file.getOriginalFilename(), file.getContentType(), visibility);
+        } catch (IOException e) {
+            throw new RuntimeException("保存文件失败", e);
+        }
+    }
+
+    @Override
+    public FileInfoDto upload(Long userId, InputStream content, String filename, String contentType, String visibility) {
+        if (userId == null) {
+            throw new AuthenticationCredentialsNotFoundException("未登录");
+        }
+        if (content == null) {
+            throw new BusinessException(400, "文件不能为空");
+        }
 
         String vis = normalizeVisibility(visibility);
 
         long id = IdWorker.getId();
-        String originalName = StringUtils.getFilename(file.getOriginalFilename());
+        String originalName = StringUtils.getFilename(filename);
         String safeOriginalName = (originalName == null || originalName.isBlank()) ? (id + "") : originalName;
-
         String ext = safeExtension(safeOriginalName);
-        String storedName = id + ext;
-
-        LocalDate now = LocalDate.now();
-        String relativePath = String.format(
-                "%04d/%02d/%02d/%d%s",
-                now.getYear(),
-                now.getMonthValue(),
-                now.getDayOfMonth(),
-                id,
-                ext
-        );
 
-        Path absolutePath = resolveAbsolutePath(relativePath);
+        Received received = receive(content);
+        SysFileObject object;
         try {
-            Files.createDirectories(absolutePath.getParent());
-            file.transferTo(absolutePath);
+            object = storeObject(received, ext);
         } catch (IOException e) {
             throw new RuntimeException("保存文件失败", e);
+        } finally {
+            try {
+                Files.deleteIfExists(received.temp());
+            } catch (IOException ignored) {
+                // best-effort cleanup
+            }
         }
 
         SysFile record = new SysFile();
         record.setId(id);
         record.setOriginalName(safeOriginalName);
-        record.setStoredName(storedName);
-        record.setPath(relativePath);
-        record.setSize(file.getSize());
-        record.setContentType(file.getContentType());
+        record.setStoredName(id + ext);
+        record.setPath(object.getPath());
+        record.setObjectId(object.getId());
+        record.setSize(object.getSize());
+        record.setContentType(contentType);
         record.setVisibility(vis);
         record.setUserId(userId);
         record.setDeleted(0);
@@ -88,14 +123,13 @@ public class DbFileService implements FileService {
         try {
             fileMapper.insert(record);
         } catch (Exception e) {
-            try {
-                Files.deleteIfExists(absolutePath);
-            } catch (IOException ignored) {
-                // best-effort cleanup
-            }
+            releaseObject(object.getId());
             throw e;
         }
 
+        if ("PUBLIC".equals(vis)) {
+            imageDerivatives.submit(resolveAbsolutePath(object.getPath()), contentType);
+        }
         return toDto(record);
     }
 
@@ -123,7 +157,8 @@ public class DbFileService implements FileService {
     }
 
     @Override
-    public FileDownload download(Long fileId, Long requesterUserId) {
+    public FileDownload download(Long fileId, Long requesterUserId, String variant) {
+        String v = normalizeVariant(variant);
         SysFile file = fileMapper.selectById(fileId);
         if (file == null) {
             throw new BusinessException(1008, "文件不存在");
@@ -139,12 +174,55 @@ public class DbFileService implements FileService {
             }
         }
 
-        Path absolutePath = resolveAbsolutePath(file.getPath());
-        if (!Files.exists(absolutePath)) {
-            throw new BusinessException(1008, "文件不存在");
+        FileDownload original = toDownload(file);
+        FileDownload derived = v == null ? null : toVariantDownload(original, v);
+        return derived == null ? original : derived;
+    }
+
+    @Override
+    public FileDownload downloadPublic(Long fileId, String variant) {
+        String v = normalizeVariant(variant);
+        FileDownload original = fileId == null ? null : publicFileCache.get(fileId, null);
+        if (original == null) {
+            SysFile file = fileId == null ? null : fileMapper.selectById(fileId);
+            if (file == null || !"PUBLIC".equalsIgnoreCase(file.getVisibility())) {
+                throw new BusinessException(1008, "文件不存在");
+            }
+            original = toDownload(file);
+            publicFileCache.put(original);
+        }
+
+        FileDownload target = original;
+        if (v != null) {
+            FileDownload derived = publicFileCache.get(fileId, v);
+            if (derived == null) {
+                derived = toVariantDownload(original, v);
+                if (derived != null) {
+                    // Missing variants are not cached: they show up once generated.
+                    publicFileCache.put(derived);
+                }
+            }
+            if (derived != null) {
+                target = derived;
+            }
+        }
+        if (!publicFileCache.cachesContent(target.size())) {
+            return target;
         }
 
-        return new FileDownload(file.getOriginalName(), file.getSize(), file.getContentType(), absolutePath);
+        // An original served as a variant shares the original's cached bytes.
+        String contentVariant = target.absolutePath().equals(original.absolutePath()) ? null : target.variant();
+        byte[] content = publicFileCache.getContent(fileId, contentVariant);
+        if (content == null) {
+            try {
+                content = Files.readAllBytes(target.absolutePath());
+            } catch (IOException e) {
+                publicFileCache.evict(fileId);
+                throw new BusinessException(1008, "文件不存在");
+            }
+            publicFileCache.putContent(fileId, contentVariant, content);
+        }
+        return target.withContent(content);
     }
 
     @Override
@@ -163,15 +241,221 @@ public class DbFileService implements FileService {
 
         file.setDeleted(1);
         fileMapper.updateById(file);
+        publicFileCache.evict(fileId);
 
+        if (file.getObjectId() != null) {
+            releaseObject(file.getObjectId());
+            return;
+        }
         // Best-effort: remove physical file if present.
         try {
-            Files.deleteIfExists(resolveAbsolutePath(file.getPath()));
+            Path absolutePath = resolveAbsolutePath(file.getPath());
+            Files.deleteIfExists(absolutePath);
+            imageDerivatives.deleteAll(absolutePath);
         } catch (IOException ignored) {
             // ignore
         }
     }
 
+    /**
+     * Stream the upload into a temp file under the storage root (same file system, so it can be moved into place),
+     * hashing it on the way and enforcing {@code max-upload-bytes}.
+     */
+    private Received receive(InputStream content) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Path temp = null;
+        try {
+            Path tempDir = storageRoot.resolve(TEMP_DIR);
+            Files.createDirectories(tempDir);
+            temp = Files.createTempFile(tempDir, "upload-", ".part");
+
+            long total = 0;
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                int n;
+                while ((n = content.read(buffer)) != -1) {
+                    total += n;
+                    if (total > maxUploadBytes) {
+                        throw new BusinessException(400, "文件大小超过限制");
+                    }
+                    sha256.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+            }
+            if (total == 0) {
+                throw new BusinessException(400, "文件不能为空");
+            }
+            return new Received(temp, total, HexFormat.of().formatHex(sha256.digest()));
+        } catch (IOException | RuntimeException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // best-effort cleanup
+                }
+            }
+            if (e instanceof BusinessException be) {
+                throw be;
+            }
+            throw new RuntimeException("保存文件失败", e);
+        }
+    }
+
+    /**
+     * Take a reference on the object holding this content, creating it from the temp file if it is new.
+     * <p>
+     * A concurrent first upload of the same content loses on the sha256 unique key and retries as a reference; an
+     * object whose last reference is being dropped concurrently (ref_count already 0) is retried until it is gone.
+     */
+    private SysFileObject storeObject(Received received, String ext) throws IOException {
+        for (int attempt = 0; attempt < STORE_ATTEMPTS; attempt++) {
+            SysFileObject existing = fileObjectMapper.selectOne(
+                    Wrappers.lambdaQuery(SysFileObject.class).eq(SysFileObject::getSha256, received.sha256()));
+            if (existing != null) {
+                UpdateWrapper<SysFileObject> acquire = new UpdateWrapper<>();
+                acquire.eq("id", existing.getId());
+                acquire.gt("ref_count", 0);
+                acquire.setSql("ref_count = ref_count + 1");
+                if (fileObjectMapper.update(null, acquire) == 1) {
+                    return existing;
+                }
+                continue;
+            }
+
+            long objectId = IdWorker.getId();
+            LocalDate now = LocalDate.now();
+            String relativePath = String.format(
+                    "%04d/%02d/%02d/%d%s",
+                    now.getYear(),
+                    now.getMonthValue(),
+                    now.getDayOfMonth(),
+                    objectId,
+                    ext
+            );
+            Path absolutePath = resolveAbsolutePath(relativePath);
+            Files.createDirectories(absolutePath.getParent());
+            Files.move(received.temp(), absolutePath);
+
+            SysFileObject object = new SysFileObject();
+            object.setId(objectId);
+            object.setSha256(received.sha256());
+            object.setSize(received.size());
+            object.setPath(relativePath);
+            object.setRefCount(1);
+            try {
+                fileObjectMapper.insert(object);
+                return object;
+            } catch (DuplicateKeyException e) {
+                // Same content stored concurrently: take the temp file back and reference the winner instead.
+                Files.move(absolutePath, received.temp());
+            } catch (RuntimeException e) {
+                Files.deleteIfExists(absolutePath);
+                throw e;
+            }
+        }
+        throw new RuntimeException("保存文件失败");
+    }
+
+    /**
+     * Drop one reference; the last one removes the object row and its file.
+     */
+    private void releaseObject(Long objectId) {
+        SysFileObject object = fileObjectMapper.selectById(objectId);
+        if (object == null) {
+            return;
+        }
+        UpdateWrapper<SysFileObject> release = new UpdateWrapper<>();
+        release.eq("id", objectId);
+        release.gt("ref_count", 0);
+        release.setSql("ref_count = ref_count - 1");
+        fileObjectMapper.update(null, release);
+
+        int removed = fileObjectMapper.delete(Wrappers.lambdaQuery(SysFileObject.class)
+                .eq(SysFileObject::getId, objectId)
+                .eq(SysFileObject::getRefCount, 0));
+        if (removed == 1) {
+            try {
+                Path absolutePath = resolveAbsolutePath(object.getPath());
+                Files.deleteIfExists(absolutePath);
+                imageDerivatives.deleteAll(absolutePath);
+            } catch (IOException ignored) {
+                // best-effort cleanup
+            }
+        }
+    }
+
+    private FileDownload toDownload(SysFile file) {
+        Path absolutePath = resolveAbsolutePath(file.getPath());
+        try {
+            return new FileDownload(
+                    file.getId(),
+                    file.getOriginalName(),
+                    Files.size(absolutePath),
+                    file.getContentType(),
+                    absolutePath,
+                    Files.getLastModifiedTime(absolutePath).toMillis(),
+                    null,
+                    null
+            );
+        } catch (IOException e) {
+            throw new BusinessException(1008, "文件不存在");
+        }
+    }
+
+    /**
+     * The generated variant of an image, or null when there is none (not an image, too small, not generated yet).
+     */
+    private FileDownload toVariantDownload(FileDownload original, String variant) {
+        Path path = imageDerivatives.resolve(original.absolutePath(), original.contentType(), variant);
+        if (path == null) {
+            return null;
+        }
+        if (path.equals(original.absolutePath())) {
+            // No variant will be generated: the original is this variant for good.
+            return new FileDownload(
+                    original.fileId(),
+                    original.originalName(),
+                    original.size(),
+                    original.contentType(),
+                    path,
+                    original.lastModified(),
+                    null,
+                    variant
+            );
+        }
+        try {
+            return new FileDownload(
+                    original.fileId(),
+                    original.originalName(),
+                    Files.size(path),
+                    imageDerivatives.variantContentType(original.contentType()),
+                    path,
+                    Files.getLastModifiedTime(path).toMillis(),
+                    null,
+                    variant
+            );
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String normalizeVariant(String variant) {
+        if (variant == null || variant.isBlank() || "original".equalsIgnoreCase(variant.trim())) {
+            return null;
+        }
+        String v = variant.trim().toLowerCase(Locale.ROOT);
+        if (!imageDerivatives.isVariant(v)) {
+            throw new BusinessException(400, "size 参数错误");
+        }
+        return v;
+    }
+
     private FileInfoDto toDto(SysFile file) {
         FileInfoDto dto = new FileInfoDto();
         dto.setId(file.getId());
@@ -223,4 +507,6 @@ public class DbFileService implements FileService {
         }
         return "." + normalized;
     }
+
+    private record Received(Path temp, long size, String sha256) {}
 }
@@ -2,6 +2,7 @@ package com.example.admin.service.impl;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.admin.common.CountMode;
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.message.CreateMessageRequest;
 import com.example.admin.dto.message.MessageDto;
@@ -28,11 +29,18 @@ public class DbMessageService implements MessageService {
     private final SysMessageMapper messageMapper;
     private final SysUserMapper userMapper;
     private final NotificationService notificationService;
-
-    public DbMessageService(SysMessageMapper messageMapper, SysUserMapper userMapper, NotificationService notificationService) {
+    private final PagedQueries pagedQueries;
+
+    public DbMessageService(
+            SysMessageMapper messageMapper,
+            SysUserMapper userMapper,
+            NotificationService notificationService,
+            PagedQueries pagedQueries
+    ) {
         this.messageMapper = messageMapper;
         this.userMapper = userMapper;
         this.notificationService = notificationService;
+        this.pagedQueries = pagedQueries;
     }
 
     @Override
@@ -91,35 +99,27 @@ public class DbMessageService implements MessageService {
     }
 
     @Override
-    public PageResult<MessageDto> listAll(long current, long size) {
-        Page<SysMessage> page = messageMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(SysMessage.class).orderByDesc(SysMessage::getId)
-        );
-
-        List<Long> userIds = page.getRecords().stream()
-                .map(SysMessage::getUserId)
-                .filter(Objects::nonNull)
-                .distinct()
-                .toList();
-
-        Map<Long, String> usernameById = userIds.isEmpty()
-                ? Map.of()
-                : userMapper.selectList(Wrappers.lambdaQuery(SysUser.class).in(SysUser::getId, userIds))
-                        .stream()
-                        .filter(u -> u.getId() != null)
-                        .collect(Collectors.toMap(SysUser::getId, SysUser::getUsername, (a, b) -> a));
-
-        List<MessageDto> records = page.getRecords().stream()
-                .map(m -> toDto(m, usernameById.getOrDefault(m.getUserId(), "")))
-                .toList();
+    public PageResult<MessageDto> listAll(long current, long size, String cursor, String count) {
+        CountMode countMode = CountMode.parse(count);
+        if (cursor != null) {
+            return pagedQueries.keyset(
+                    messageMapper,
+                    Wrappers.lambdaQuery(SysMessage.class).orderByDesc(SysMessage::getId),
+                    null,
+                    SysMessage::getId,
+                    size,
+                    cursor
+            ).map(this::toDtosWithUsernames);
+        }
 
-        PageResult<MessageDto> result = new PageResult<>();
-        result.setRecords(records);
-        result.setTotal(page.getTotal());
-        result.setCurrent(page.getCurrent());
-        result.setSize(page.getSize());
-        return result;
+        return pagedQueries.page(
+                messageMapper,
+                Wrappers.lambdaQuery(SysMessage.class).orderByDesc(SysMessage::getId),
+                current,
+                size,
+                countMode,
+                null
+        ).map(this::toDtosWithUsernames);
     }
 
     @Override
@@ -191,4 +191,23 @@ public class DbMessageService implements MessageService {
         String t = title.trim();
         return t.length() > 60 ? t.substring(0, 60) : t;
     }
+
+    private List<MessageDto> toDtosWithUsernames(List<SysMessage> messages) {
+        List<Long> userIds = messages.stream()
+                .map(SysMessage::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        Map<Long, String> usernameById = userIds.isEmpty()
+                ? Map.of()
+                : userMapper.selectList(Wrappers.lambdaQuery(SysUser.class).in(SysUser::getId, userIds))
+                        .stream()
+                        .filter(u -> u.getId() != null)
+                        .collect(Collectors.toMap(SysUser::getId, SysUser::getUsername, (a, b) -> a));
+
+        return messages.stream()
+                .map(m -> toDto(m, usernameById.getOrDefault(m.getUserId(), "")))
+                .toList();
+    }
 }
@@ -2,20 +2,25 @@ package com.example.admin.service.impl;
 
 import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.admin.common.CountMode;
+import com.example.admin.common.KeysetCursor;
 import com.example.admin.common.PageResult;
 import com.example.admin.dto.notification.AnnounceRequest;
+import com.example.admin.dto.notification.AnnouncementJobDto;
 import com.example.admin.dto.notification.NotificationDto;
+import com.example.admin.entity.SysAnnouncementRead;
 import com.example.admin.entity.SysNotification;
-import com.example.admin.entity.SysUser;
 import com.example.admin.exception.BusinessException;
+import com.example.admin.mapper.SysAnnouncementMapper;
+import com.example.admin.mapper.SysAnnouncementReadMapper;
 import com.example.admin.mapper.SysNotificationMapper;
-import com.example.admin.mapper.SysUserMapper;
 import com.example.admin.service.NotificationService;
+import com.example.admin.websocket.WebSocketMetrics;
 import com.example.admin.websocket.WebSocketSessionManager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.List;
 import java.util.Locale;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.stereotype.Service;
@@ -24,43 +29,66 @@ import org.springframework.stereotype.Service;
 public class DbNotificationService implements NotificationService {
 
     private final SysNotificationMapper notificationMapper;
-    private final SysUserMapper userMapper;
+    private final SysAnnouncementMapper announcementMapper;
+    private final SysAnnouncementReadMapper announcementReadMapper;
     private final WebSocketSessionManager sessionManager;
+    private final NotificationOutbox notificationOutbox;
     private final ObjectMapper objectMapper;
+    private final AnnouncementFanout announcementFanout;
+    private final PagedQueries pagedQueries;
 
     public DbNotificationService(
             SysNotificationMapper notificationMapper,
-            SysUserMapper userMapper,
+            SysAnnouncementMapper announcementMapper,
+            SysAnnouncementReadMapper announcementReadMapper,
             WebSocketSessionManager sessionManager,
-            ObjectMapper objectMapper
+            NotificationOutbox notificationOutbox,
+            ObjectMapper objectMapper,
+            AnnouncementFanout announcementFanout,
+            PagedQueries pagedQueries
     ) {
         this.notificationMapper = notificationMapper;
-        this.userMapper = userMapper;
+        this.announcementMapper = announcementMapper;
+        this.announcementReadMapper = announcementReadMapper;
         this.sessionManager = sessionManager;
+        this.notificationOutbox = notificationOutbox;
         this.objectMapper = objectMapper;
+        this.announcementFanout = announcementFanout;
+        this.pagedQueries = pagedQueries;
     }
 
     @Override
-    public PageResult<NotificationDto> listMyNotifications(Long userId, long current, long size) {
+    public PageResult<NotificationDto> listMyNotifications(
+            Long userId,
+            long current,
+            long size,
+            String cursor,
+            String count
+    ) {
         if (userId == null) {
             throw new AuthenticationCredentialsNotFoundException("未登录");
         }
+        CountMode countMode = CountMode.parse(count);
+
+        if (cursor != null) {
+            return pagedQueries.<SysNotification>keyset(
+                    cursor,
+                    size,
+                    (after, limit) -> notificationMapper.selectInbox(
+                            userId, false, 0, limit, limit, after == null ? null : after.id()),
+                    n -> new KeysetCursor(null, n.getId())
+            ).map(rows -> rows.stream().map(this::toDto).toList());
+        }
 
-        Page<SysNotification> page = notificationMapper.selectPage(
-                new Page<>(current, size),
-                Wrappers.lambdaQuery(SysNotification.class)
-                        .eq(SysNotification::getUserId, userId)
-                        .orderByDesc(SysNotification::getId)
-        );
-
-        List<NotificationDto> records = page.getRecords().stream().map(this::toDto).toList();
-
-        PageResult<NotificationDto> result = new PageResult<>();
-        result.setRecords(records);
-        result.setTotal(page.getTotal());
-        result.setCurrent(page.getCurrent());
-        result.setSize(page.getSize());
-        return result;
+        return pagedQueries.<SysNotification>page(
+                current,
+                size,
+                countMode,
+                "sys_notification",
+                "inbox:userId=" + userId,
+                (offset, limit) -> notificationMapper.selectInbox(userId, false, offset, limit, offset + limit, null),
+                () -> notificationMapper.countInbox(userId, false)
+        ).map(rows -> rows.stream().map(this::toDto).toList());
     }
 
     @Override
@@ -74,7 +102,8 @@ public class DbNotificationService implements NotificationService {
 
         SysNotification notification = notificationMapper.selectById(notificationId);
         if (notification == null) {
-            throw new BusinessException(404, "通知不存在");
+            markAnnouncementRead(userId, notificationId);
+            return;
         }
         if (!userId.equals(notification.getUserId())) {
             throw new AccessDeniedException("权限不足");
@@ -91,7 +120,7 @@ public class DbNotificationService implements NotificationService {
     }
 
     @Override
-    public void announce(Long adminUserId, AnnounceRequest request) {
+    public Long announce(Long adminUserId, AnnounceRequest request) {
         // adminUserId is validated by @RequiresPermission on controller, but keep it consistent with other services.
         if (adminUserId == null) {
             throw new AuthenticationCredentialsNotFoundException("未登录");
@@ -100,25 +129,16 @@ public class DbNotificationService implements NotificationService {
             throw new BusinessException(400, "请求不能为空");
         }
 
-        String title = request.getTitle();
-        String content = request.getContent();
-
-        List<SysUser> users = userMapper.selectList(Wrappers.lambdaQuery(SysUser.class).select(SysUser::getId));
-        for (SysUser user : users) {
-            if (user == null || user.getId() == null) {
-                continue;
-            }
-            SysNotification n = new SysNotification();
-            n.setId(IdWorker.getId());
-            n.setUserId(user.getId());
-            n.setTitle(title);
-            n.setContent(content);
-            n.setType("ANNOUNCEMENT");
-            n.setIsRead(0);
-            notificationMapper.insert(n);
+        return announcementFanout.submit(adminUserId, request.getTitle(), request.getContent());
+    }
 
-            pushToUser(user.getId(), toDto(n));
+    @Override
+    public AnnouncementJobDto getAnnouncementJob(Long jobId) {
+        AnnouncementJobDto job = announcementFanout.getJob(jobId);
+        if (job == null) {
+            throw new BusinessException(404, "公告任务不存在");
         }
+        return job;
     }
 
     @Override
@@ -146,14 +166,37 @@ public class DbNotificationService implements NotificationService {
             throw new AuthenticationCredentialsNotFoundException("未登录");
         }
         int pageSize = Math.max(1, limit);
-        Page<SysNotification> page = notificationMapper.selectPage(
-                new Page<>(1, pageSize),
-                Wrappers.lambdaQuery(SysNotification.class)
-                        .eq(SysNotification::getUserId, userId)
-                        .eq(SysNotification::getIsRead, 0)
-                        .orderByDesc(SysNotification::getId)
+        return notificationMapper.selectInbox(userId, true, 0, pageSize, pageSize, null)
+                .stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Override
+    public WebSocketMetrics getPushMetrics() {
+        return sessionManager.metrics();
+    }
+
+    private void markAnnouncementRead(Long userId, Long announcementId) {
+        if (announcementMapper.selectById(announcementId) == null) {
+            throw new BusinessException(404, "通知不存在");
+        }
+        long existing = announcementReadMapper.selectCount(
+                Wrappers.lambdaQuery(SysAnnouncementRead.class)
+                        .eq(SysAnnouncementRead::getAnnouncementId, announcementId)
+                        .eq(SysAnnouncementRead::getUserId, userId)
         );
-        return page.getRecords().stream().map(this::toDto).toList();
+        if (existing > 0) {
+            return;
+        }
+        SysAnnouncementRead read = new SysAnnouncementRead();
+        read.setAnnouncementId(announcementId);
+        read.setUserId(userId);
+        try {
+            announcementReadMapper.insert(read);
+        } catch (DuplicateKeyException ignored) {
+            // Concurrent mark-read of the same announcement.
+        }
     }
 
     private NotificationDto toDto(SysNotification n) {
@@ -179,12 +222,10 @@ public class DbNotificationService implements NotificationService {
     }
 
     private void pushToUser(Long userId, NotificationDto notification) {
-        if (!sessionManager.isOnline(userId)) {
-            return;
-        }
         try {
             String payload = objectMapper.writeValueAsString(new WsMessage("notification", notification));
-            sessionManager.sendToUser(userId, payload);
+            // Delivered after the caller's transaction commits (e.g. DbMessageService.reply), off the request thread.
+            notificationOutbox.sendToUser(userId, payload);
         } catch (Exception ignored) {
             // ignore
         }
@@ -5,18 +5,16 @@ import com.example.admin.dto.permission.CreatePermissionRequest;
 import com.example.admin.dto.permission.PermissionDto;
 import com.example.admin.dto.permission.UpdatePermissionRequest;
 import com.example.admin.entity.SysPermission;
-import com.example.admin.entity.SysRole;
-import com.example.admin.entity.SysRolePermission;
-import com.example.admin.entity.SysUserRole;
 import com.example.admin.exception.BusinessException;
 import com.example.admin.mapper.SysPermissionMapper;
-import com.example.admin.mapper.SysRoleMapper;
-import com.example.admin.mapper.SysRolePermissionMapper;
-import com.example.admin.mapper.SysUserRoleMapper;
+import com.example.admin.security.PermissionCache;
 import com.example.admin.service.PermissionService;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -26,21 +24,15 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class DbPermissionService implements PermissionService {
 
-    private final SysUserRoleMapper userRoleMapper;
-    private final SysRoleMapper roleMapper;
-    private final SysRolePermissionMapper rolePermissionMapper;
     private final SysPermissionMapper permissionMapper;
+    private final PermissionCache permissionCache;
 
     public DbPermissionService(
-            SysUserRoleMapper userRoleMapper,
-            SysRoleMapper roleMapper,
-            SysRolePermissionMapper rolePermissionMapper,
-            SysPermissionMapper permissionMapper
+            SysPermissionMapper permissionMapper,
+            PermissionCache permissionCache
     ) {
-        this.userRoleMapper = userRoleMapper;
-        this.roleMapper = roleMapper;
-        this.rolePermissionMapper = rolePermissionMapper;
         this.permissionMapper = permissionMapper;
+        this.permissionCache = permissionCache;
     }
 
     @Override
@@ -48,48 +40,32 @@ public class DbPermissionService implements PermissionService {
         if (userId == null) {
             return Collections.emptySet();
         }
+        // Single round-trip join; respects logical delete of roles and permissions.
+        return permissionMapper.selectCodesByUserId(userId).stream()
+                .filter(code -> code != null && !code.isBlank())
+                .collect(Collectors.toCollection(HashSet::new));
+    }
 
-        List<SysUserRole> userRoles = userRoleMapper.selectList(
-                Wrappers.lambdaQuery(SysUserRole.class).eq(SysUserRole::getUserId, userId)
-        );
-        List<Long> roleIds = userRoles.stream()
-                .map(SysUserRole::getRoleId)
-                .filter(Objects::nonNull)
-                .distinct()
-                .toList();
-        if (roleIds.isEmpty()) {
-            return Collections.emptySet();
+    @Override
+    public Map<Long, Set<String>> getPermissionsByUserIds(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
         }
-
-        // Filter out deleted roles (SysRole has @TableLogic).
-        List<SysRole> roles = roleMapper.selectList(Wrappers.lambdaQuery(SysRole.class).in(SysRole::getId, roleIds));
-        Set<Long> activeRoleIds = roles.stream()
-                .map(SysRole::getId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-        if (activeRoleIds.isEmpty()) {
-            return Collections.emptySet();
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
         }
 
-        List<SysRolePermission> rolePermissions = rolePermissionMapper.selectList(
-                Wrappers.lambdaQuery(SysRolePermission.class).in(SysRolePermission::getRoleId, activeRoleIds)
-        );
-        List<Long> permissionIds = rolePermissions.stream()
-                .map(SysRolePermission::getPermissionId)
-                .filter(Objects::nonNull)
-                .distinct()
-                .toList();
-        if (permissionIds.isEmpty()) {
-            return Collections.emptySet();
+        Map<Long, Set<String>> result = new HashMap<>();
+        for (Map<String, Object> row : permissionMapper.selectCodesByUserIds(ids)) {
+            Long userId = toLong(row.getOrDefault("user_id", row.get("USER_ID")));
+            Object code = row.getOrDefault("code", row.get("CODE"));
+            if (userId == null || code == null || code.toString().isBlank()) {
+                continue;
+            }
+            result.computeIfAbsent(userId, k -> new HashSet<>()).add(code.toString());
         }
-
-        List<SysPermission> permissions = permissionMapper.selectList(
-                Wrappers.lambdaQuery(SysPermission.class).in(SysPermission::getId, permissionIds)
-        );
-        return permissions.stream()
-                .map(SysPermission::getCode)
-                .filter(code -> code != null && !code.isBlank())
-                .collect(Collectors.toCollection(HashSet::new));
+        return result;
     }
 
     @Override
@@ -140,6 +116,21 @@ public class DbPermissionService implements PermissionService {
         if (affected == 0) {
             throw new BusinessException(1006, "权限不存在");
         }
+        permissionCache.invalidateAll();
+    }
+
+    private Long toLong(Object v) {
+        if (v == null) {
+            return null;
+        }
+        if (v instanceof Number n) {
+            return n.longValue();
+        }
+        try {
+            return Long.parseLong(v.toString());
+        } catch (Exception ignored) {
+            return null;
+        }
     }
 
     private PermissionDto toDto(SysPermission permission) {
@@ -14,6 +14,7 @@ import com.example.admin.exception.BusinessException;
 import com.example.admin.mapper.SysPermissionMapper;
 import com.example.admin.mapper.SysRoleMapper;
 import com.example.admin.mapper.SysRolePermissionMapper;
+import com.example.admin.security.PermissionCache;
 import com.example.admin.service.RoleService;
 import java.util.Collections;
 import java.util.HashSet;
@@ -29,15 +30,18 @@ public class DbRoleService implements RoleService {
     private final SysRoleMapper roleMapper;
     private final SysRolePermissionMapper rolePermissionMapper;
     private final SysPermissionMapper permissionMapper;
+    private final PermissionCache permissionCache;
 
     public DbRoleService(
             SysRoleMapper roleMapper,
             SysRolePermissionMapper rolePermissionMapper,
-            SysPermissionMapper permissionMapper
+            SysPermissionMapper permissionMapper,
+            PermissionCache permissionCache
     ) {
         this.roleMapper = roleMapper;
         this.rolePermissionMapper = rolePermissionMapper;
         this.permissionMapper = permissionMapper;
+        this.permissionCache = permissionCache;
     }
 
     @Override
@@ -113,6 +117,7 @@ public class DbRoleService implements RoleService {
         if (affected == 0) {
             throw new BusinessException(1004, "角色不存在");
         }
+        permissionCache.invalidateAll();
     }
 
     @Override
@@ -139,6 +144,7 @@ public class DbRoleService implements RoleService {
             rp.setPermissionId(permissionId);
             rolePermissionMapper.insert(rp);
         }
+        permissionCache.invalidateAll();
     }
 
     private RoleDto toDto(SysRole role) {
@@ -7,6 +7,7 @@ import com.example.admin.entity.BizActivity;
 import com.example.admin.entity.BizActivityDonation;
 import com.example.admin.entity.BizActivitySignup;
 import com.example.admin.entity.BizCrowdfundingDonation;
+import com.example.admin.exception.BusinessException;
 import com.example.admin.mapper.BizActivityMapper;
 import com.example.admin.mapper.BizActivityDonationMapper;
 import com.example.admin.mapper.BizActivitySignupMapper;
@@ -20,37 +21,161 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class DbStatsService implements StatsService {
 
     private static final String STATUS_SIGNED = "SIGNED";
     private static final String STATUS_CHECKED_IN = "CHECKED_IN";
 
+    /**
+     * Stats engines: pre-aggregated rollup tables, GROUP BY over the raw tables, or in-JVM summing (income only).
+     */
+    public static final String ENGINE_ROLLUP = "rollup";
+    public static final String ENGINE_SQL = "sql";
+    public static final String ENGINE_JVM = "jvm";
+
     private final BizActivitySignupMapper signupMapper;
     private final BizActivityMapper activityMapper;
     private final BizActivityDonationMapper activityDonationMapper;
     private final BizCrowdfundingDonationMapper crowdfundingDonationMapper;
+    private final IncomeDailyRollup incomeDailyRollup;
+    private final String incomeEngine;
+    private final ActivitySignupBuckets signupBuckets;
+    private final String signupEngine;
+    private final StatsResultCache resultCache;
+    private final boolean backfillOnStartup;
 
     public DbStatsService(
             BizActivitySignupMapper signupMapper,
             BizActivityMapper activityMapper,
             BizActivityDonationMapper activityDonationMapper,
-            BizCrowdfundingDonationMapper crowdfundingDonationMapper
+            BizCrowdfundingDonationMapper crowdfundingDonationMapper,
+            IncomeDailyRollup incomeDailyRollup,
+            @Value("${app.stats.income-engine:rollup}") String incomeEngine,
+            ActivitySignupBuckets signupBuckets,
+            @Value("${app.stats.signup-engine:rollup}") String signupEngine,
+            StatsResultCache resultCache,
+            @Value("${app.stats.rollup-backfill-on-startup:true}") boolean backfillOnStartup
     ) {
         this.signupMapper = signupMapper;
         this.activityMapper = activityMapper;
         this.activityDonationMapper = activityDonationMapper;
         this.crowdfundingDonationMapper = crowdfundingDonationMapper;
+        this.incomeDailyRollup = incomeDailyRollup;
+        this.incomeEngine = normalizeEngine(incomeEngine, ENGINE_ROLLUP, ENGINE_SQL, ENGINE_JVM);
+        this.signupBuckets = signupBuckets;
+        this.signupEngine = normalizeEngine(signupEngine, ENGINE_ROLLUP, ENGINE_SQL);
+        this.resultCache = resultCache;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    /**
+     * Fill empty rollup tables from the raw data, so the rollup engine does not report a history of zeros after
+     * the tables are first deployed. Runs once the application is ready; populated tables are left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillRollups() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            int days = incomeDailyRollup.backfillIfEmpty();
+            if (days > 0) {
+                log.info("Backfilled income rollup: {} days with income", days);
+            }
+        } catch (Exception e) {
+            log.warn("Backfill income rollup failed; rebuild it with POST /api/stats/income-rollup/rebuild", e);
+        }
+        try {
+            int buckets = signupBuckets.backfillIfEmpty();
+            if (buckets > 0) {
+                log.info("Backfilled signup buckets: {} activity-hours", buckets);
+            }
+        } catch (Exception e) {
+            log.warn("Backfill signup buckets failed; rebuild them with POST /api/stats/signup-rollup/rebuild", e);
+        }
+        resultCache.invalidate();
     }
 
     @Override
     public List<ActivitySignupRatioDto> activitySignupRatio(int days) {
+        return activitySignupRatio(days, null);
+    }
+
+    @Override
+    public List<ActivitySignupRatioDto> activitySignupRatio(int days, String engine) {
         int d = days <= 0 ? 7 : days;
+        String e = engine == null || engine.isBlank() ? signupEngine : normalizeEngine(engine, ENGINE_ROLLUP, ENGINE_SQL);
+        return resultCache.get(StatsResultCache.SIGNUPS, d + ":" + e, () -> computeActivitySignupRatio(d, e));
+    }
+
+    @Override
+    public List<IncomeTrendDto> incomeTrend(int days) {
+        return incomeTrend(days, null);
+    }
+
+    @Override
+    public List<IncomeTrendDto> incomeTrend(int days, String engine) {
+        int d = days <= 0 ? 7 : days;
+        String e = engine == null || engine.isBlank() ? incomeEngine : normalizeEngine(engine, ENGINE_ROLLUP, ENGINE_SQL, ENGINE_JVM);
+        return resultCache.get(StatsResultCache.INCOME, d + ":" + e, () -> computeIncomeTrend(d, e));
+    }
+
+    @Override
+    public List<ActivitySignupRatioDto> freshActivitySignupRatio(int days) {
+        return computeActivitySignupRatio(days <= 0 ? 7 : days, signupEngine);
+    }
+
+    @Override
+    public List<IncomeTrendDto> freshIncomeTrend(int days) {
+        return computeIncomeTrend(days <= 0 ? 7 : days, incomeEngine);
+    }
+
+    @Override
+    public int rebuildIncomeRollup(int days) {
+        int d = days <= 0 ? 7 : days;
+        LocalDate endDate = LocalDate.now();
+        int rebuilt = incomeDailyRollup.rebuild(endDate.minusDays(d - 1L), endDate);
+        resultCache.invalidate(StatsResultCache.INCOME);
+        return rebuilt;
+    }
+
+    @Override
+    public int rebuildSignupBuckets(int days) {
+        int d = days <= 0 ? 7 : days;
+        int rebuilt = signupBuckets.rebuild(LocalDateTime.now().minusDays(d));
+        resultCache.invalidate(StatsResultCache.SIGNUPS);
+        return rebuilt;
+    }
+
+    private List<ActivitySignupRatioDto> computeActivitySignupRatio(int d, String e) {
         LocalDateTime start = LocalDateTime.now().minusDays(d);
 
+        if (ENGINE_ROLLUP.equals(e)) {
+            // Titles come joined in, so this is a single query over activities x hourly buckets.
+            return signupBuckets.read(start).stream()
+                    .map(r -> {
+                        ActivitySignupRatioDto dto = new ActivitySignupRatioDto();
+                        dto.setActivityId(toLong(r.getOrDefault("activity_id", r.get("ACTIVITY_ID"))));
+                        Object title = r.getOrDefault("activity_title", r.get("ACTIVITY_TITLE"));
+                        dto.setActivityTitle(title == null ? null : title.toString());
+                        Object cntObj = r.getOrDefault("cnt", r.get("CNT"));
+                        dto.setSignupCount(cntObj == null ? 0L : ((Number) cntObj).longValue());
+                        return dto;
+                    })
+                    .sorted(Comparator.comparingLong(ActivitySignupRatioDto::getSignupCount).reversed())
+                    .toList();
+        }
+
         QueryWrapper<BizActivitySignup> wrapper = new QueryWrapper<>();
         wrapper.select("activity_id", "COUNT(*) AS cnt")
                 .ge("signed_at", start)
@@ -92,12 +217,48 @@ public class DbStatsService implements StatsService {
                 .toList();
     }
 
-    @Override
-    public List<IncomeTrendDto> incomeTrend(int days) {
-        int d = days <= 0 ? 7 : days;
-
+    private List<IncomeTrendDto> computeIncomeTrend(int d, String e) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(d - 1L);
+
+        Map<LocalDate, BigDecimal> sumByDate = switch (e) {
+            case ENGINE_ROLLUP -> incomeDailyRollup.read(startDate, endDate);
+            case ENGINE_SQL -> sumDonationsByDateInDb(startDate, endDate);
+            default -> sumDonationsByDate(startDate, endDate);
+        };
+
+        List<IncomeTrendDto> out = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            IncomeTrendDto dto = new IncomeTrendDto();
+            dto.setDate(date.toString());
+            dto.setAmount(sumByDate.getOrDefault(date, BigDecimal.ZERO));
+            out.add(dto);
+        }
+        return out;
+    }
+
+
+    /**
+     * One GROUP BY over both donation tables; at most one row per day comes back.
+     */
+    private Map<LocalDate, BigDecimal> sumDonationsByDateInDb(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, BigDecimal> sumByDate = new HashMap<>();
+        List<Map<String, Object>> rows = activityDonationMapper.selectIncomeByDate(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        for (Map<String, Object> row : rows) {
+            LocalDate date = toLocalDate(row.getOrDefault("stat_date", row.get("STAT_DATE")));
+            BigDecimal amount = toBigDecimal(row.getOrDefault("amount", row.get("AMOUNT")));
+            if (date != null && amount != null) {
+                sumByDate.put(date, amount);
+            }
+        }
+        return sumByDate;
+    }
+
+    /**
+     * Loads every donation of the window and sums in memory (the original engine, kept for comparison).
+     */
+    private Map<LocalDate, BigDecimal> sumDonationsByDate(LocalDate startDate, LocalDate endDate) {
         LocalDateTime startTime = startDate.atStartOfDay();
         LocalDateTime endTimeExclusive = endDate.plusDays(1).atStartOfDay();
 
@@ -128,15 +289,7 @@ public class DbStatsService implements StatsService {
             LocalDate date = d1.getCreatedAt().toLocalDate();
             sumByDate.put(date, sumByDate.getOrDefault(date, BigDecimal.ZERO).add(d1.getAmount()));
         }
-
-        List<IncomeTrendDto> out = new ArrayList<>();
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            IncomeTrendDto dto = new IncomeTrendDto();
-            dto.setDate(date.toString());
-            dto.setAmount(sumByDate.getOrDefault(date, BigDecimal.ZERO));
-            out.add(dto);
-        }
-        return out;
+        return sumByDate;
     }
 
     private Long toLong(Object v) {
@@ -152,4 +305,48 @@ public class DbStatsService implements StatsService {
             return null;
         }
     }
+
+    private BigDecimal toBigDecimal(Object v) {
+        if (v == null) {
+            return null;
+        }
+        if (v instanceof BigDecimal b) {
+            return b;
+        }
+        try {
+            return new BigDecimal(v.toString());
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private LocalDate toLocalDate(Object v) {
+        if (v == null) {
+            return null;
+        }
+        if (v instanceof LocalDate date) {
+            return date;
+        }
+        if (v instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (v instanceof LocalDateTime dateTime) {
+            return dateTime.toLocalDate();
+        }
+        try {
+            return LocalDate.parse(v.toString().substring(0, 10));
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private String normalizeEngine(String engine, String... supported) {
+        String e = engine == null ? "" : engine.trim().toLowerCase(Locale.ROOT);
+        for (String s : supported) {
+            if (s.equals(e)) {
+                return s;
+            }
+        }
+        throw new BusinessException(400, "engine 参数错误");
+    }
 }
@@ -15,6 +15,7 @@ import com.example.admin.exception.BusinessException;
 import com.example.admin.mapper.SysRoleMapper;
 import com.example.admin.mapper.SysUserMapper;
 import com.example.admin.mapper.SysUserRoleMapper;
+import com.example.admin.security.PermissionCache;
 import com.example.admin.service.PermissionService;
 import com.example.admin.service.UserService;
 import java.util.ArrayList;
@@ -38,19 +39,22 @@ public class DbUserService implements UserService {
     private final SysRoleMapper roleMapper;
     private final PermissionService permissionService;
     private final PasswordEncoder passwordEncoder;
+    private final PermissionCache permissionCache;
 
     public DbUserService(
             SysUserMapper userMapper,
             SysUserRoleMapper userRoleMapper,
             SysRoleMapper roleMapper,
             PermissionService permissionService,
-            PasswordEncoder passwordEncoder
+            PasswordEncoder passwordEncoder,
+            PermissionCache permissionCache
     ) {
         this.userMapper = userMapper;
         this.userRoleMapper = userRoleMapper;
         this.roleMapper = roleMapper;
         this.permissionService = permissionService;
         this.passwordEncoder = passwordEncoder;
+        this.permissionCache = permissionCache;
     }
 
     @Override
@@ -84,10 +88,12 @@ public class DbUserService implements UserService {
                 .toList();
 
         Map<Long, List<RoleDto>> rolesByUserId = getRolesByUserIds(userIds);
+        Map<Long, Set<String>> permissionsByUserId = permissionService.getPermissionsByUserIds(userIds);
         List<UserDto> records = page.getRecords().stream()
                 .map(u -> {
                     UserDto dto = toDtoNoAuthInfo(u);
                     dto.setRoles(rolesByUserId.getOrDefault(u.getId(), List.of()));
+                    dto.setPermissions(permissionsByUserId.getOrDefault(u.getId(), Set.of()).stream().sorted().toList());
                     return dto;
                 })
                 .toList();
@@ -160,6 +166,7 @@ public class DbUserService implements UserService {
         if (affected == 0) {
             throw new BusinessException(1001, "用户不存在");
         }
+        permissionCache.invalidateAll();
     }
 
     @Override
@@ -186,6 +193,7 @@ public class DbUserService implements UserService {
             ur.setRoleId(roleId);
             userRoleMapper.insert(ur);
         }
+        permissionCache.invalidateAll();
     }
 
     private UserDto toDtoNoAuthInfo(SysUser user) {
@@ -0,0 +1,296 @@
+package com.example.admin.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resized variants of stored images (thumb / medium), generated off the request thread.
+ * <p>
+ * A variant lives next to its original as {@code <original>.<variant>.png|jpg}: PNG and GIF sources become PNG
+ * (they may carry transparency), everything else JPEG. Variants are only written for images larger than the
+ * variant's bounding box; for any other file the original is the variant for good (see {@link #resolve}). Because
+ * variants hang off the stored file, deduplicated uploads share them too.
+ */
+@Slf4j
+@Component
+public class ImageDerivatives {
+
+    public static final String THUMB = "thumb";
+    public static final String MEDIUM = "medium";
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final boolean enabled;
+    private final long maxSourcePixels;
+    /** variant -> longest edge in pixels */
+    private final Map<String, Integer> maxEdges = new LinkedHashMap<>();
+    /** Originals queued for generation, so repeated requests for a pending variant queue it once. */
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "image-derivatives");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ImageDerivatives(
+            @Value("${app.file.derivatives.enabled:true}") boolean enabled,
+            @Value("${app.file.derivatives.thumb-max-edge:240}") int thumbMaxEdge,
+            @Value("${app.file.derivatives.medium-max-edge:960}") int mediumMaxEdge,
+            @Value("${app.file.derivatives.max-source-pixels:40000000}") long maxSourcePixels
+    ) {
+        this.enabled = enabled;
+        this.maxSourcePixels = maxSourcePixels;
+        this.maxEdges.put(THUMB, Math.max(1, thumbMaxEdge));
+        this.maxEdges.put(MEDIUM, Math.max(1, mediumMaxEdge));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public boolean isVariant(String variant) {
+        return variant != null && maxEdges.containsKey(variant);
+    }
+
+    public static boolean isImage(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("image/");
+    }
+
+    /**
+     * Queue variant generation for an image; no-op when disabled, not an image or already generated.
+     */
+    public void submit(Path original, String contentType) {
+        if (!enabled || original == null || !isImage(contentType) || !queued.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateQuietly(original, contentType);
+                } finally {
+                    queued.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(original);
+            log.debug("Image derivative executor is shut down, skipped: {}", original);
+        }
+    }
+
+    /**
+     * What to serve for a variant of a stored file:
+     * <ul>
+     *   <li>the generated variant file;</li>
+     *   <li>the original itself when no variant will ever be generated for it (not an image, already within the
+     *       variant's box, not decodable or over {@code max-source-pixels}, or derivatives disabled): as final as a
+     *       generated variant;</li>
+     *   <li>null while the variant is still to be generated. Generation is queued then, which also backfills images
+     *       stored before variants existed.</li>
+     * </ul>
+     */
+    public Path resolve(Path original, String contentType, String variant) {
+        if (!enabled || !isVariant(variant) || !isImage(contentType)) {
+            return original;
+        }
+        Path path = variantPath(original, contentType, variant);
+        if (Files.exists(path)) {
+            return path;
+        }
+        Integer longestEdge;
+        try {
+            longestEdge = longestEdge(original);
+        } catch (IOException e) {
+            // Unreadable right now (e.g. missing): nothing final to say.
+            return null;
+        }
+        if (longestEdge == null || longestEdge <= maxEdges.get(variant)) {
+            return original;
+        }
+        submit(original, contentType);
+        return null;
+    }
+
+    public String variantContentType(String contentType) {
+        return "png".equals(formatFor(contentType)) ? "image/png" : "image/jpeg";
+    }
+
+    /**
+     * Remove every variant of a stored file (the original is the caller's business).
+     */
+    public void deleteAll(Path original) {
+        for (String variant : maxEdges.keySet()) {
+            for (String format : new String[] {"png", "jpg"}) {
+                try {
+                    Files.deleteIfExists(original.resolveSibling(original.getFileName() + "." + variant + "." + format));
+                } catch (IOException ignored) {
+                    // best-effort cleanup
+                }
+            }
+        }
+    }
+
+    private void generateQuietly(Path original, String contentType) {
+        try {
+            generate(original, contentType);
+        } catch (Exception e) {
+            log.warn("Generate image derivatives failed: {}", original, e);
+        }
+    }
+
+    private void generate(Path original, String contentType) throws IOException {
+        if (!Files.exists(original)) {
+            return;
+        }
+        boolean pending = false;
+        for (String variant : maxEdges.keySet()) {
+            pending |= !Files.exists(variantPath(original, contentType, variant));
+        }
+        if (!pending) {
+            // Same content uploaded before: variants already exist.
+            return;
+        }
+
+        BufferedImage source = readBounded(original);
+        if (source == null) {
+            return;
+        }
+        String format = formatFor(contentType);
+        for (Map.Entry<String, Integer> entry : maxEdges.entrySet()) {
+            Path target = variantPath(original, contentType, entry.getKey());
+            int maxEdge = entry.getValue();
+            if (Files.exists(target) || Math.max(source.getWidth(), source.getHeight()) <= maxEdge) {
+                continue;
+            }
+            BufferedImage resized = resize(source, maxEdge, "png".equals(format));
+            Path temp = target.resolveSibling(target.getFileName() + ".part");
+            try {
+                write(resized, format, temp);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Decode the image, refusing sources whose header announces more than {@code max-source-pixels}.
+     */
+    private BufferedImage readBounded(Path original) throws IOException {
+        return withReader(original, reader -> {
+            if (!withinSourceLimit(reader)) {
+                log.debug("Image too large for derivatives: {}", original);
+                return null;
+            }
+            return reader.read(0);
+        });
+    }
+
+    /**
+     * Longest edge from the image header (nothing is decoded), or null when no variant can be made of it.
+     */
+    private Integer longestEdge(Path original) throws IOException {
+        return withReader(original, reader -> withinSourceLimit(reader)
+                ? Math.max(reader.getWidth(0), reader.getHeight(0))
+                : null);
+    }
+
+    private boolean withinSourceLimit(ImageReader reader) throws IOException {
+        long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+        return pixels > 0 && pixels <= maxSourcePixels;
+    }
+
+    /**
+     * Run {@code call} with a reader positioned on the image; null when the file is not a readable image.
+     */
+    private static <R> R withReader(Path original, ReaderCall<R> call) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return call.apply(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int maxEdge, boolean keepAlpha) {
+        double scale = (double) maxEdge / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage target = new BufferedImage(
+                width, height, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Path variantPath(Path original, String contentType, String variant) {
+        return original.resolveSibling(original.getFileName() + "." + variant + "." + formatFor(contentType));
+    }
+
+    private static String formatFor(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("image/png") || type.startsWith("image/gif") ? "png" : "jpg";
+    }
+
+    private interface ReaderCall<R> {
+        R apply(ImageReader reader) throws IOException;
+    }
+}
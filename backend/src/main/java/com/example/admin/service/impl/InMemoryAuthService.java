@@ -72,7 +72,7 @@ public class InMemoryAuthService implements AuthService {
             throw new BadCredentialsException("refresh token invalid");
         }
 
-        Long userId = jwtTokenProvider.getUserIdFromToken(refreshToken);
+        Long userId = jwtTokenProvider.getUserId(claims);
         if (userId == null) {
             throw new BadCredentialsException("refresh token invalid");
         }
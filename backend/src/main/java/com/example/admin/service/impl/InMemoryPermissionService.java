@@ -4,8 +4,11 @@ import com.example.admin.dto.permission.CreatePermissionRequest;
 import com.example.admin.dto.permission.PermissionDto;
 import com.example.admin.dto.permission.UpdatePermissionRequest;
 import com.example.admin.service.PermissionService;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
@@ -32,6 +35,21 @@ public class InMemoryPermissionService implements PermissionService {
         return user.permissions();
     }
 
+    @Override
+    public Map<Long, Set<String>> getPermissionsByUserIds(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Set<String>> result = new HashMap<>();
+        for (Long userId : userIds) {
+            Set<String> permissions = getPermissionsByUserId(userId);
+            if (!permissions.isEmpty()) {
+                result.put(userId, permissions);
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<PermissionDto> listAll() {
         return List.of();
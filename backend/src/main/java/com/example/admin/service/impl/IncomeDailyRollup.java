@@ -0,0 +1,125 @@
+package com.example.admin.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.example.admin.entity.BizIncomeDaily;
+import com.example.admin.mapper.BizIncomeDailyMapper;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Daily income rollup (biz_income_daily): activity + crowdfunding donations summed per day.
+ * <p>
+ * Each day is spread over {@code app.stats.income-stripes} rows: a donation adds its amount to a random stripe of its
+ * day in the donation's own transaction, so concurrent donors lock different rows instead of queueing on one
+ * platform-wide row, and a trend over N days reads at most N * stripes rows. Days are those of the donation's
+ * created_at, which the services stamp from the application clock, the same clock the trend's window uses.
+ * <p>
+ * {@link #rebuild} recomputes a date range from the raw donation tables (repair). For yesterday and today, the days
+ * live donations can still land on, it first locks every stripe row: donors that already added to a stripe have
+ * committed by the time the lock is granted and are in the raw read, donors that have not wait for the rebuild to
+ * commit and add on top of it, so no donation is counted twice or lost. All nodes must use the same stripe count.
+ * {@link #backfillIfEmpty} rebuilds the whole history once, on the first start after the table was created.
+ */
+@Component
+public class IncomeDailyRollup {
+
+    private final BizIncomeDailyMapper incomeDailyMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+
+    public IncomeDailyRollup(
+            BizIncomeDailyMapper incomeDailyMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.stats.income-stripes:8}") int stripes
+    ) {
+        this.incomeDailyMapper = incomeDailyMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = Math.max(1, stripes);
+    }
+
+    /**
+     * Count a donation; call inside the transaction that inserts it.
+     *
+     * @param donatedAt the donation's created_at
+     */
+    public void add(LocalDateTime donatedAt, BigDecimal amount) {
+        if (donatedAt == null || amount == null || amount.signum() == 0) {
+            return;
+        }
+        int stripeNo = ThreadLocalRandom.current().nextInt(stripes);
+        incomeDailyMapper.addToStripe(donatedAt.toLocalDate(), stripeNo, amount);
+    }
+
+    /**
+     * Income per day in [{@code from}, {@code to}]; days without income are absent.
+     */
+    public Map<LocalDate, BigDecimal> read(LocalDate from, LocalDate to) {
+        Map<LocalDate, BigDecimal> sumByDate = new HashMap<>();
+        for (BizIncomeDaily row : incomeDailyMapper.selectList(Wrappers.lambdaQuery(BizIncomeDaily.class)
+                .ge(BizIncomeDaily::getStatDate, from)
+                .le(BizIncomeDaily::getStatDate, to))) {
+            if (row.getStatDate() != null && row.getAmount() != null && row.getAmount().signum() != 0) {
+                sumByDate.merge(row.getStatDate(), row.getAmount(), BigDecimal::add);
+            }
+        }
+        return sumByDate;
+    }
+
+    /**
+     * Recompute the days in [{@code from}, {@code to}] from the raw donation tables.
+     *
+     * @return number of days that had income
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        LocalDate liveFrom = LocalDate.now().minusDays(1);
+        Integer days = transactionTemplate.execute(status -> {
+            // Locks first, so the raw read below starts after every donor holding a stripe has committed.
+            for (LocalDate day = from.isAfter(liveFrom) ? from : liveFrom; !day.isAfter(to); day = day.plusDays(1)) {
+                for (int stripeNo = 0; stripeNo < stripes; stripeNo++) {
+                    incomeDailyMapper.lockStripe(day, stripeNo);
+                }
+            }
+            incomeDailyMapper.delete(Wrappers.lambdaQuery(BizIncomeDaily.class)
+                    .ge(BizIncomeDaily::getStatDate, from)
+                    .le(BizIncomeDaily::getStatDate, to)
+                    .lt(BizIncomeDaily::getStatDate, liveFrom));
+            incomeDailyMapper.update(null, Wrappers.lambdaUpdate(BizIncomeDaily.class)
+                    .set(BizIncomeDaily::getAmount, BigDecimal.ZERO)
+                    .ge(BizIncomeDaily::getStatDate, from.isAfter(liveFrom) ? from : liveFrom)
+                    .le(BizIncomeDaily::getStatDate, to));
+
+            List<BizIncomeDaily> sums = incomeDailyMapper.sumDonationsByDate(
+                    from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+            for (BizIncomeDaily sum : sums) {
+                incomeDailyMapper.addToStripe(sum.getStatDate(), 0, sum.getAmount());
+            }
+            return sums.size();
+        });
+        return days == null ? 0 : days;
+    }
+
+    /**
+     * Rebuild every day since the oldest donation when the rollup has no rows yet.
+     *
+     * @return number of days that had income; 0 when the rollup was already populated or there are no donations
+     */
+    public int backfillIfEmpty() {
+        if (incomeDailyMapper.exists(Wrappers.lambdaQuery(BizIncomeDaily.class))) {
+            return 0;
+        }
+        LocalDateTime first = incomeDailyMapper.selectFirstDonationAt();
+        if (first == null) {
+            return 0;
+        }
+        return rebuild(first.toLocalDate(), LocalDate.now());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.admin.service.impl;
+
+import com.example.admin.websocket.NotificationBus;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers WebSocket pushes until the producing transaction commits.
+ * <p>
+ * Pushes are collected during the transaction, released to a dispatcher thread in afterCommit and dropped on
+ * rollback, so business transactions never wait on delivery and clients never see data that was rolled back.
+ * The notification rows themselves are the durable record: a push lost to a crash is recovered by the unread
+ * snapshot the client gets on (re)connect.
+ */
+@Slf4j
+@Component
+public class NotificationOutbox {
+
+    private final NotificationBus notificationBus;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "notification-outbox");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public NotificationOutbox(NotificationBus notificationBus) {
+        this.notificationBus = notificationBus;
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdown();
+    }
+
+    public void sendToUser(Long userId, String payload) {
+        if (userId == null || payload == null) {
+            return;
+        }
+        afterCommit(() -> notificationBus.sendToUser(userId, payload));
+    }
+
+    /**
+     * Run a delivery on the dispatcher thread once the current transaction commits (right away without one).
+     */
+    public void afterCommit(Runnable delivery) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(delivery);
+                }
+            });
+            return;
+        }
+        dispatch(delivery);
+    }
+
+    /**
+     * Run a delivery on the dispatcher thread now. Deliveries run one at a time, in the order they are dispatched.
+     */
+    void dispatch(Runnable delivery) {
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    delivery.run();
+                } catch (Exception e) {
+                    log.debug("Notification push failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Notification outbox is shut down, push dropped");
+        }
+    }
+}
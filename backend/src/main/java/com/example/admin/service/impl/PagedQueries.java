@@ -0,0 +1,271 @@
+package com.example.admin.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.admin.common.CountMode;
+import com.example.admin.common.KeysetCursor;
+import com.example.admin.common.PageResult;
+import com.example.admin.exception.BusinessException;
+import com.example.admin.mapper.TableStatsMapper;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offset paging with a selectable {@link CountMode}.
+ * <p>
+ * EXACT is the plain {@code selectPage} (COUNT + LIMIT). NONE and APPROX read {@code size + 1} rows with a single
+ * LIMIT/OFFSET query and derive {@code hasNext} from the extra row; APPROX then adds an estimated total. An
+ * unfiltered list is estimated from the table statistics (MySQL {@code information_schema.TABLES.TABLE_ROWS}); a
+ * filtered one, a table with logical delete (the statistics count deleted rows too), or any list when the database
+ * is not MySQL, gets an exact count that is reused for {@code ttl-ms}.
+ * <p>
+ * The keyset methods serve the {@code cursor} variant of the same lists (see {@link KeysetCursor}).
+ */
+@Slf4j
+@Component
+public class PagedQueries {
+
+    private final TableStatsMapper tableStatsMapper;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final ConcurrentMap<String, Estimate> estimates = new ConcurrentHashMap<>();
+    private final boolean tableStatsAvailable;
+
+    public PagedQueries(
+            TableStatsMapper tableStatsMapper,
+            DataSource dataSource,
+            @Value("${app.page.approx-count.ttl-ms:60000}") long ttlMs,
+            @Value("${app.page.approx-count.max-entries:1024}") int maxEntries
+    ) {
+        this.tableStatsMapper = tableStatsMapper;
+        this.ttlMs = ttlMs;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.tableStatsAvailable = isMySql(dataSource);
+        if (!tableStatsAvailable) {
+            log.info("Table statistics unavailable (not MySQL), approximate counts use cached COUNT(*)");
+        }
+    }
+
+    /**
+     * @param filterKey identifies the query's filters for the approximate count cache; null when unfiltered
+     */
+    public <T> PageResult<T> page(
+            BaseMapper<T> mapper,
+            LambdaQueryWrapper<T> query,
+            long current,
+            long size,
+            CountMode mode,
+            String filterKey
+    ) {
+        if (mode == CountMode.EXACT) {
+            Page<T> page = mapper.selectPage(new Page<>(current, size), query);
+            PageResult<T> result = new PageResult<>();
+            result.setRecords(page.getRecords());
+            result.setTotal(page.getTotal());
+            result.setCurrent(page.getCurrent());
+            result.setSize(page.getSize());
+            return result;
+        }
+
+        TableInfo table = TableInfoHelper.getTableInfo(query.getEntityClass());
+        LambdaQueryWrapper<T> countQuery = mode == CountMode.APPROX ? withoutOrder(query) : null;
+        return page(
+                current,
+                size,
+                mode,
+                table.getTableName(),
+                filterKey,
+                !table.isWithLogicDelete(),
+                (offset, limit) -> mapper.selectList(query.last("LIMIT " + limit + " OFFSET " + offset)),
+                () -> mapper.selectCount(countQuery)
+        );
+    }
+
+    /**
+     * Offset page for queries that are not a plain wrapper: {@code fetch} gets the offset and the number of rows to
+     * read ({@code size}, or {@code size + 1} unless EXACT), {@code count} returns the exact total (EXACT, or APPROX
+     * when no estimate is at hand).
+     *
+     * @param table     table the approximate count is estimated / cached for
+     * @param filterKey identifies the query's filters for the approximate count cache; null when unfiltered
+     */
+    public <T> PageResult<T> page(
+            long current,
+            long size,
+            CountMode mode,
+            String table,
+            String filterKey,
+            BiFunction<Long, Long, List<T>> fetch,
+            Supplier<Long> count
+    ) {
+        return page(current, size, mode, table, filterKey, true, fetch, count);
+    }
+
+    private <T> PageResult<T> page(
+            long current,
+            long size,
+            CountMode mode,
+            String table,
+            String filterKey,
+            boolean useTableStats,
+            BiFunction<Long, Long, List<T>> fetch,
+            Supplier<Long> count
+    ) {
+        long pageNo = Math.max(1, current);
+        long pageSize = Math.max(1, size);
+        long offset = (pageNo - 1) * pageSize;
+        PageResult<T> result = new PageResult<>();
+        result.setCurrent(pageNo);
+        result.setSize(pageSize);
+        if (mode == CountMode.EXACT) {
+            result.setRecords(fetch.apply(offset, pageSize));
+            result.setTotal(count.get());
+            return result;
+        }
+
+        List<T> rows = new ArrayList<>(fetch.apply(offset, pageSize + 1));
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows.remove(rows.size() - 1);
+        }
+        result.setRecords(rows);
+        result.setHasNext(hasNext);
+        if (mode == CountMode.APPROX) {
+            // Never report fewer rows than this page proves to exist.
+            long seen = offset + rows.size() + (hasNext ? 1 : 0);
+            result.setTotal(Math.max(seen, approximateCount(table, filterKey, useTableStats, count)));
+        } else {
+            result.setTotal(-1);
+        }
+        return result;
+    }
+
+    /**
+     * One keyset page of a list ordered newest first by {@code (time, id)}, or by {@code id} alone when {@code time}
+     * is null. {@code query} must already carry that ORDER BY; the position and the LIMIT are added here.
+     *
+     * @param cursor token from the previous page, blank for the first page
+     */
+    public <T> PageResult<T> keyset(
+            BaseMapper<T> mapper,
+            LambdaQueryWrapper<T> query,
+            SFunction<T, LocalDateTime> time,
+            SFunction<T, Long> id,
+            long size,
+            String cursor
+    ) {
+        return keyset(cursor, size, (after, limit) -> {
+            if (after != null && time == null) {
+                query.lt(id, after.id());
+            } else if (after != null) {
+                if (after.time() == null) {
+                    // A cursor of an id-ordered list sent to a time-ordered one.
+                    throw new BusinessException(400, "cursor 参数错误");
+                }
+                query.and(w -> w.lt(time, after.time()).or(o -> o.eq(time, after.time()).lt(id, after.id())));
+            }
+            return mapper.selectList(query.last("LIMIT " + limit));
+        }, row -> new KeysetCursor(time == null ? null : time.apply(row), id.apply(row)));
+    }
+
+    /**
+     * Keyset page for queries that are not a plain wrapper: {@code fetch} gets the decoded position (null on the first
+     * page) and the number of rows to read ({@code size + 1}).
+     */
+    public <T> PageResult<T> keyset(
+            String cursor,
+            long size,
+            BiFunction<KeysetCursor, Long, List<T>> fetch,
+            Function<T, KeysetCursor> keyOf
+    ) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        long pageSize = Math.max(1, size);
+        List<T> rows = new ArrayList<>(fetch.apply(after, pageSize + 1));
+        String next = KeysetCursor.trim(rows, pageSize, keyOf);
+        return PageResult.keyset(rows, pageSize, next);
+    }
+
+    /**
+     * Estimated row count of {@code table} under the filters named by {@code filterKey} (null = whole table).
+     *
+     * @param useTableStats false when the statistics would not match the list, e.g. they include logically deleted
+     *                      rows
+     */
+    private long approximateCount(String table, String filterKey, boolean useTableStats, Supplier<Long> exactCount) {
+        if (filterKey == null && useTableStats && tableStatsAvailable) {
+            Long estimated = tableRows(table);
+            if (estimated != null) {
+                return estimated;
+            }
+        }
+
+        String key = table + "|" + (filterKey == null ? "" : filterKey);
+        long now = System.currentTimeMillis();
+        Estimate cached = estimates.get(key);
+        if (cached != null && now - cached.countedAt() < ttlMs) {
+            return cached.rows();
+        }
+        long rows = exactCount.get();
+        if (ttlMs > 0) {
+            if (estimates.size() >= maxEntries) {
+                estimates.entrySet().removeIf(e -> now - e.getValue().countedAt() >= ttlMs);
+            }
+            if (estimates.size() < maxEntries) {
+                estimates.put(key, new Estimate(rows, now));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * A copy of the query's filters for selectCount: without the ORDER BY (which MySQL rejects next to COUNT(*) under
+     * ONLY_FULL_GROUP_BY) and without the LIMIT the list query adds. Take it before the list query runs, since the
+     * wrapper caches its rendered SQL on first use.
+     */
+    private static <T> LambdaQueryWrapper<T> withoutOrder(LambdaQueryWrapper<T> query) {
+        LambdaQueryWrapper<T> copy = query.clone();
+        copy.getExpression().getOrderBy().clear();
+        return copy;
+    }
+
+    private Long tableRows(String table) {
+        try {
+            return tableStatsMapper.estimatedRows(table);
+        } catch (DataAccessException e) {
+            // A transient failure: this call falls back to the cached count, the next one asks again.
+            log.warn("Read table statistics of {} failed: {}", table, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isMySql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return product != null && product.toLowerCase(Locale.ROOT).contains("mysql");
+        } catch (MetaDataAccessException e) {
+            log.warn("Read database product name failed, approximate counts use cached COUNT(*)", e);
+            return false;
+        }
+    }
+
+    private record Estimate(long rows, long countedAt) {}
+}
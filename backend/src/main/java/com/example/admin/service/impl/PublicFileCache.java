@@ -0,0 +1,73 @@
+package com.example.admin.service.impl;
+
+import com.example.admin.common.BoundedCache;
+import com.example.admin.service.FileService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache for PUBLIC file metadata and, optionally, the bytes of small files.
+ * <p>
+ * Stored files never change once written (a new upload gets a new snowflake id), but a file can be deleted on any
+ * node while only that node's cache is told. Entries therefore expire {@code ttl-seconds} after they are cached,
+ * which bounds how long other nodes keep serving a deleted file; the deleting node drops them at once. Entries are
+ * per file and variant (null = original). Metadata is bounded by {@code metadata-size} entries; bytes are kept for
+ * files up to {@code small-file-bytes} and bounded by {@code max-bytes} in total. Lookups take no lock.
+ */
+@Component
+public class PublicFileCache {
+
+    private final long smallFileBytes;
+    private final long maxBytes;
+
+    private final BoundedCache<Key, FileService.FileDownload> metadata;
+    private final BoundedCache<Key, byte[]> contents;
+
+    public PublicFileCache(
+            @Value("${app.file.public-cache.metadata-size:10000}") int metadataSize,
+            @Value("${app.file.public-cache.small-file-bytes:65536}") long smallFileBytes,
+            @Value("${app.file.public-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${app.file.public-cache.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.smallFileBytes = Math.max(0, smallFileBytes);
+        this.maxBytes = Math.max(0, maxBytes);
+        long ttlMillis = Math.max(0, ttlSeconds) * 1000;
+        this.metadata = BoundedCache.ofEntries(Math.max(0, metadataSize), ttlMillis);
+        this.contents = new BoundedCache<>(this.maxBytes, ttlMillis, content -> content.length);
+    }
+
+    public FileService.FileDownload get(Long fileId, String variant) {
+        return metadata.get(new Key(fileId, variant));
+    }
+
+    public void put(FileService.FileDownload download) {
+        metadata.put(new Key(download.fileId(), download.variant()), download);
+    }
+
+    /**
+     * Drop a file and all its variants.
+     */
+    public void evict(Long fileId) {
+        metadata.removeIf(key -> key.fileId().equals(fileId));
+        contents.removeIf(key -> key.fileId().equals(fileId));
+    }
+
+    /**
+     * Whether a file of this size is eligible for the byte cache.
+     */
+    public boolean cachesContent(long size) {
+        return size > 0 && size <= smallFileBytes && size <= maxBytes;
+    }
+
+    public byte[] getContent(Long fileId, String variant) {
+        return contents.get(new Key(fileId, variant));
+    }
+
+    public void putContent(Long fileId, String variant, byte[] content) {
+        if (cachesContent(content.length)) {
+            contents.put(new Key(fileId, variant), content);
+        }
+    }
+
+    private record Key(Long fileId, String variant) {}
+}
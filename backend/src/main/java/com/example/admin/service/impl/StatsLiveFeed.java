@@ -0,0 +1,271 @@
+package com.example.admin.service.impl;
+
+import com.example.admin.dto.stats.ActivitySignupRatioDto;
+import com.example.admin.dto.stats.IncomeTrendDto;
+import com.example.admin.dto.stats.StatsDeltaDto;
+import com.example.admin.dto.stats.StatsSnapshotDto;
+import com.example.admin.service.StatsService;
+import com.example.admin.websocket.NotificationBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Live stats stream for admin dashboards (WebSocket topic {@value #TOPIC}).
+ * <p>
+ * Donations and signup changes are pushed to subscribers as deltas once their transaction commits, and folded into
+ * an in-memory copy of the last {@code days} of income trend and signup ratio. A subscribing dashboard gets that copy
+ * as its snapshot, so open dashboards cost no queries: the copy is loaded from {@link StatsService} only when it is
+ * first needed, older than {@code snapshot-ttl-ms} (which also lets deltas committed on other nodes and signups
+ * sliding out of the window catch up), or after a delta it cannot fold in (a new day or an activity it has not seen).
+ * <p>
+ * Each delta is numbered ({@code stream}, {@code seq}) right after its transaction commits, and a snapshot carries
+ * the number of the last delta it contains. A transaction holds {@link #commitLock} shared from before its commit until
+ * its deltas are numbered, and a reload holds it exclusively while it queries, so a reload sees exactly the deltas
+ * numbered up to the seq it records: folding skips those, and clients ignore deltas of the snapshot's stream whose
+ * {@code seq} is not above the snapshot's (the bus may hand a delta to a session after its snapshot already counted
+ * it). Deltas are folded and delivered in seq order. Deltas for signups made before the window are not counted by
+ * either side.
+ */
+@Slf4j
+@Component
+public class StatsLiveFeed {
+
+    public static final String TOPIC = "stats";
+
+    private static final String KIND_INCOME = "income";
+    private static final String KIND_SIGNUP = "signup";
+
+    private final StatsService statsService;
+    private final NotificationOutbox outbox;
+    private final NotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+    private final int days;
+    private final long snapshotTtlMs;
+    private final String stream = UUID.randomUUID().toString();
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    /** Last number handed out; guarded by itself. */
+    private final AtomicLong numbered = new AtomicLong();
+
+    /** Guarded by this. */
+    private LinkedHashMap<LocalDate, BigDecimal> income;
+    private Map<Long, ActivitySignupRatioDto> signups;
+    private long loadedAt;
+    /** Number of the last delta contained in income / signups. */
+    private long seq;
+
+    public StatsLiveFeed(
+            StatsService statsService,
+            NotificationOutbox outbox,
+            NotificationBus notificationBus,
+            ObjectMapper objectMapper,
+            @Value("${app.stats.live.days:7}") int days,
+            @Value("${app.stats.live.snapshot-ttl-ms:60000}") long snapshotTtlMs
+    ) {
+        this.statsService = statsService;
+        this.outbox = outbox;
+        this.notificationBus = notificationBus;
+        this.objectMapper = objectMapper;
+        this.days = Math.max(1, days);
+        this.snapshotTtlMs = Math.max(0, snapshotTtlMs);
+    }
+
+    /**
+     * Announce a donation; call inside the transaction that inserts it.
+     */
+    public void donation(BigDecimal amount) {
+        if (amount == null || amount.signum() == 0) {
+            return;
+        }
+        StatsDeltaDto delta = new StatsDeltaDto();
+        delta.setKind(KIND_INCOME);
+        delta.setDate(LocalDate.now().toString());
+        delta.setAmount(amount);
+        publish(delta);
+    }
+
+    /**
+     * Announce a signup ({@code +1}) or cancel ({@code -1}); call inside the transaction that writes it.
+     *
+     * @param signedAt when the signup was made (for a cancel, the original signup time)
+     */
+    public void signupChanged(Long activityId, int change, LocalDateTime signedAt) {
+        if (activityId == null || change == 0 || signedAt == null) {
+            return;
+        }
+        StatsDeltaDto delta = new StatsDeltaDto();
+        delta.setKind(KIND_SIGNUP);
+        delta.setActivityId(activityId);
+        delta.setDelta(change);
+        delta.setSignedAt(signedAt);
+        publish(delta);
+    }
+
+    /**
+     * Current aggregates, from memory unless they have to be (re)loaded.
+     */
+    public synchronized StatsSnapshotDto snapshot() {
+        long now = System.currentTimeMillis();
+        if (income == null || now - loadedAt > snapshotTtlMs) {
+            load(now);
+        }
+
+        StatsSnapshotDto dto = new StatsSnapshotDto();
+        dto.setDays(days);
+        dto.setStream(stream);
+        dto.setSeq(seq);
+        List<IncomeTrendDto> trend = new ArrayList<>(income.size());
+        for (Map.Entry<LocalDate, BigDecimal> entry : income.entrySet()) {
+            IncomeTrendDto item = new IncomeTrendDto();
+            item.setDate(entry.getKey().toString());
+            item.setAmount(entry.getValue());
+            trend.add(item);
+        }
+        dto.setIncomeTrend(trend);
+        dto.setActivitySignupRatio(signups.values().stream()
+                .filter(r -> r.getSignupCount() > 0)
+                .map(r -> {
+                    ActivitySignupRatioDto copy = new ActivitySignupRatioDto();
+                    copy.setActivityId(r.getActivityId());
+                    copy.setActivityTitle(r.getActivityTitle());
+                    copy.setSignupCount(r.getSignupCount());
+                    return copy;
+                })
+                .sorted(Comparator.comparingLong(ActivitySignupRatioDto::getSignupCount).reversed())
+                .toList());
+        return dto;
+    }
+
+    private void publish(StatsDeltaDto delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitLock.readLock().lock();
+            try {
+                number(delta);
+            } finally {
+                commitLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!locked) {
+                    return;
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        number(delta);
+                    }
+                } finally {
+                    commitLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Numbers a committed delta and queues it for delivery in one step, so the dispatcher applies deltas in seq order.
+     */
+    private void number(StatsDeltaDto delta) {
+        synchronized (numbered) {
+            delta.setStream(stream);
+            delta.setSeq(numbered.incrementAndGet());
+            outbox.dispatch(() -> {
+                String payload;
+                try {
+                    payload = objectMapper.writeValueAsString(new WsMessage("stats.delta", apply(delta)));
+                } catch (Exception e) {
+                    log.debug("Serialize stats delta failed", e);
+                    return;
+                }
+                notificationBus.publish(TOPIC, payload);
+            });
+        }
+    }
+
+    /**
+     * Folds the delta in unless the loaded copy already contains it.
+     */
+    private synchronized StatsDeltaDto apply(StatsDeltaDto delta) {
+        if (income != null && delta.getSeq() > seq) {
+            fold(delta);
+            seq = delta.getSeq();
+        }
+        return delta;
+    }
+
+    private void fold(StatsDeltaDto delta) {
+        if (KIND_INCOME.equals(delta.getKind())) {
+            LocalDate date = LocalDate.parse(delta.getDate());
+            if (!income.containsKey(date)) {
+                // The window has moved on; reload on the next snapshot.
+                income = null;
+                return;
+            }
+            income.merge(date, delta.getAmount(), BigDecimal::add);
+            return;
+        }
+        if (delta.getSignedAt().isBefore(LocalDateTime.now().minusDays(days))) {
+            // The signup (or the one being canceled) is older than the window and was never counted.
+            return;
+        }
+        ActivitySignupRatioDto row = signups.get(delta.getActivityId());
+        if (row == null) {
+            // Title unknown until reloaded.
+            income = null;
+            return;
+        }
+        row.setSignupCount(row.getSignupCount() + delta.getDelta());
+    }
+
+    /**
+     * Reads the aggregates from the database (not the stats result cache, which may lag behind deltas already
+     * numbered) while no transaction with deltas is between its commit and its numbering.
+     */
+    private void load(long now) {
+        LinkedHashMap<LocalDate, BigDecimal> loadedIncome = new LinkedHashMap<>();
+        Map<Long, ActivitySignupRatioDto> loadedSignups = new LinkedHashMap<>();
+        long loadedSeq;
+        commitLock.writeLock().lock();
+        try {
+            loadedSeq = numbered.get();
+            for (IncomeTrendDto item : statsService.freshIncomeTrend(days)) {
+                loadedIncome.put(LocalDate.parse(item.getDate()), item.getAmount());
+            }
+            for (ActivitySignupRatioDto item : statsService.freshActivitySignupRatio(days)) {
+                loadedSignups.put(item.getActivityId(), item);
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        income = loadedIncome;
+        signups = loadedSignups;
+        loadedAt = now;
+        seq = loadedSeq;
+    }
+
+    private record WsMessage(String type, Object data) {}
+}
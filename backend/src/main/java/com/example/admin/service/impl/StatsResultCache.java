@@ -0,0 +1,142 @@
+package com.example.admin.service.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Short-lived cache of stats results, keyed by group (the endpoint) and parameters.
+ * <p>
+ * Concurrent requests for the same key share one computation (single-flight): the first caller computes, the others
+ * wait for its result. Results live for {@code ttl-ms}. A write invalidates only the group it feeds (a donation
+ * {@link #INCOME}, a signup change {@link #SIGNUPS}) once its transaction commits, by bumping that group's
+ * generation so its entries (including one still being computed) become stale at once; the other group keeps being
+ * served. Callers must treat returned values as read-only, they are shared.
+ */
+@Component
+public class StatsResultCache {
+
+    public static final String INCOME = "income-trend";
+    public static final String SIGNUPS = "activity-signup-ratio";
+
+    private final long ttlMs;
+    private final int maxEntries;
+    /** Bumped by {@link #invalidate()}; a group's generation is this plus its own counter, so any bump moves it. */
+    private final AtomicLong generation = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> groupGenerations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public StatsResultCache(
+            @Value("${app.stats.cache.ttl-ms:5000}") long ttlMs,
+            @Value("${app.stats.cache.max-entries:256}") int maxEntries
+    ) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String group, String params, Supplier<T> loader) {
+        if (ttlMs <= 0) {
+            return loader.get();
+        }
+        String key = group + ":" + params;
+        while (true) {
+            long current = generation(group);
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isFresh(current, ttlMs)) {
+                return (T) join(entry.result());
+            }
+
+            Entry fresh = new Entry(current, System.currentTimeMillis(), new CompletableFuture<>());
+            boolean won = entry == null ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, entry, fresh);
+            if (!won) {
+                // Someone else started computing this key; wait for theirs.
+                continue;
+            }
+            if (entries.size() > maxEntries) {
+                entries.entrySet().removeIf(e -> e.getValue() != fresh
+                        && !e.getValue().isFresh(generation(groupOf(e.getKey())), ttlMs));
+            }
+            try {
+                T value = loader.get();
+                fresh.result().complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                entries.remove(key, fresh);
+                fresh.result().completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Drop the results of one group once the current transaction commits (right away without one). Until then the
+     * cached results still match what other transactions can read.
+     */
+    public void invalidate(String group) {
+        afterCommit(() -> {
+            groupGenerations.computeIfAbsent(group, g -> new AtomicLong()).incrementAndGet();
+            entries.keySet().removeIf(key -> group.equals(groupOf(key)));
+        });
+    }
+
+    /**
+     * Drop all cached results once the current transaction commits (right away without one).
+     */
+    public void invalidate() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            entries.clear();
+        });
+    }
+
+    private long generation(String group) {
+        AtomicLong own = groupGenerations.get(group);
+        return generation.get() + (own == null ? 0 : own.get());
+    }
+
+    private static String groupOf(String key) {
+        return key.substring(0, key.indexOf(':'));
+    }
+
+    private static void afterCommit(Runnable bump) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump.run();
+                }
+            });
+            return;
+        }
+        bump.run();
+    }
+
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry(long generation, long startedAt, CompletableFuture<Object> result) {
+
+        boolean isFresh(long currentGeneration, long ttlMs) {
+            if (generation != currentGeneration || result.isCompletedExceptionally()) {
+                return false;
+            }
+            return !result.isDone() || System.currentTimeMillis() - startedAt <= ttlMs;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.admin.websocket;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.example.admin.entity.SysWsEvent;
+import com.example.admin.mapper.SysWsEventMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cross-node bus on the shared database.
+ * <p>
+ * Publishing inserts a sys_ws_event row (inside the caller's transaction, so nothing is announced before commit).
+ * Every node polls every {@code bus-poll-ms} for events with an id above the highest one it has seen, minus an overlap
+ * of {@code bus-overlap-ms}, and delivers those whose target it holds. Ids are snowflake ids (millisecond timestamp in
+ * the high bits), so the overlap catches rows that commit late or come from a node whose clock is a little behind;
+ * the ids seen inside the window make delivery exactly-once per node. An event that becomes visible more than the
+ * overlap behind the newest one is missed. Events are deleted after {@code bus-retention-ms}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.websocket.bus", havingValue = "jdbc")
+public class JdbcNotificationBus implements NotificationBus {
+
+    private static final int CLEANUP_EVERY_POLLS = 50;
+    /** Bits below the timestamp in a MyBatis-Plus snowflake id (worker id, datacenter id, sequence). */
+    private static final int SNOWFLAKE_TIMESTAMP_SHIFT = 22;
+
+    private final SysWsEventMapper eventMapper;
+    private final WebSocketSessionManager sessionManager;
+    private final long pollIntervalMs;
+    /** bus-overlap-ms expressed in id space. */
+    private final long overlapIds;
+    private final long retentionMs;
+
+    /** Highest event id seen; only touched by the poller thread (and start()). */
+    private long lastId;
+    private boolean seeded;
+    /** Ids seen above {@code lastId - overlapIds}. */
+    private final NavigableSet<Long> seen = new TreeSet<>();
+    private int polls;
+    private ScheduledExecutorService poller;
+
+    public JdbcNotificationBus(
+            SysWsEventMapper eventMapper,
+            WebSocketSessionManager sessionManager,
+            @Value("${app.websocket.bus-poll-ms:200}") long pollIntervalMs,
+            @Value("${app.websocket.bus-overlap-ms:2000}") long overlapMs,
+            @Value("${app.websocket.bus-retention-ms:60000}") long retentionMs
+    ) {
+        this.eventMapper = eventMapper;
+        this.sessionManager = sessionManager;
+        this.pollIntervalMs = Math.max(10, pollIntervalMs);
+        long overlap = Math.max(this.pollIntervalMs, overlapMs);
+        this.overlapIds = overlap << SNOWFLAKE_TIMESTAMP_SHIFT;
+        this.retentionMs = Math.max(overlap * 2, retentionMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Skip what was published before this node started; retried by the first poll if the DB is not reachable.
+        try {
+            seed();
+        } catch (Exception e) {
+            log.warn("Seed WebSocket bus position failed", e);
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-bus-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollQuietly, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdown();
+        }
+    }
+
+    @Override
+    public void sendToUser(Long userId, String payload) {
+        if (userId == null || payload == null) {
+            return;
+        }
+        insert(userId, null, payload);
+    }
+
+    @Override
+    public void broadcast(String payload) {
+        if (payload == null) {
+            return;
+        }
+        insert(null, null, payload);
+    }
+
+    @Override
+    public void publish(String topic, String payload) {
+        if (topic == null || payload == null) {
+            return;
+        }
+        insert(null, topic, payload);
+    }
+
+    private void insert(Long userId, String topic, String payload) {
+        SysWsEvent event = new SysWsEvent();
+        event.setUserId(userId);
+        event.setTopic(topic);
+        event.setPayload(payload);
+        event.setCreatedAt(LocalDateTime.now());
+        eventMapper.insert(event);
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            log.warn("Poll WebSocket bus failed", e);
+        }
+    }
+
+    private synchronized void seed() {
+        if (seeded) {
+            return;
+        }
+        SysWsEvent newest = eventMapper.selectOne(Wrappers.lambdaQuery(SysWsEvent.class)
+                .select(SysWsEvent::getId)
+                .orderByDesc(SysWsEvent::getId)
+                .last("LIMIT 1"));
+        lastId = newest == null ? 0 : newest.getId();
+        // Rows inside the overlap were published before this node started: mark them seen, don't deliver.
+        if (newest != null) {
+            for (Object id : eventMapper.selectObjs(Wrappers.lambdaQuery(SysWsEvent.class)
+                    .select(SysWsEvent::getId)
+                    .gt(SysWsEvent::getId, lastId - overlapIds))) {
+                seen.add(((Number) id).longValue());
+            }
+        }
+        seeded = true;
+    }
+
+    private synchronized void poll() {
+        if (!seeded) {
+            seed();
+            return;
+        }
+        long from = lastId - overlapIds;
+        List<SysWsEvent> events = eventMapper.selectList(
+                Wrappers.lambdaQuery(SysWsEvent.class)
+                        .gt(SysWsEvent::getId, from)
+                        .orderByAsc(SysWsEvent::getId)
+        );
+        for (SysWsEvent event : events) {
+            if (!seen.add(event.getId())) {
+                continue;
+            }
+            lastId = Math.max(lastId, event.getId());
+            if (event.getTopic() != null) {
+                sessionManager.publish(event.getTopic(), event.getPayload());
+            } else if (event.getUserId() == null) {
+                sessionManager.broadcast(event.getPayload());
+            } else if (sessionManager.isOnline(event.getUserId())) {
+                sessionManager.sendToUser(event.getUserId(), event.getPayload());
+            }
+        }
+        // Ids at or below the window are never returned again.
+        seen.headSet(lastId - overlapIds, true).clear();
+
+        if (++polls % CLEANUP_EVERY_POLLS == 0) {
+            eventMapper.delete(Wrappers.lambdaQuery(SysWsEvent.class)
+                    .lt(SysWsEvent::getCreatedAt, LocalDateTime.now().minusNanos(retentionMs * 1_000_000)));
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.example.admin.websocket;
 import com.example.admin.entity.SysUser;
 import com.example.admin.mapper.SysUserMapper;
 import com.example.admin.security.JwtTokenProvider;
-import io.jsonwebtoken.Claims;
+import com.example.admin.security.VerifiedAccessToken;
 import java.util.Map;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
@@ -37,25 +37,13 @@ public class JwtQueryHandshakeInterceptor implements HandshakeInterceptor {
             return false;
         }
 
-        Claims claims;
-        try {
-            claims = jwtTokenProvider.parseToken(token);
-        } catch (Exception e) {
-            response.setStatusCode(HttpStatus.UNAUTHORIZED);
-            return false;
-        }
-
-        if (!jwtTokenProvider.isAccessToken(claims)) {
-            response.setStatusCode(HttpStatus.UNAUTHORIZED);
-            return false;
-        }
-
-        Long userId = getUserIdFromClaims(claims);
-        if (userId == null) {
+        VerifiedAccessToken verified = jwtTokenProvider.verifyAccessToken(token);
+        if (verified == null) {
             response.setStatusCode(HttpStatus.UNAUTHORIZED);
             return false;
         }
 
+        Long userId = verified.userId();
         SysUser user = userMapper.selectById(userId);
         if (user == null) {
             response.setStatusCode(HttpStatus.UNAUTHORIZED);
@@ -75,20 +63,4 @@ public class JwtQueryHandshakeInterceptor implements HandshakeInterceptor {
     ) {
         // no-op
     }
-
-    private Long getUserIdFromClaims(Claims claims) {
-        Object userId = claims.get("userId");
-        if (userId == null) {
-            return null;
-        }
-        if (userId instanceof Number n) {
-            return n.longValue();
-        }
-        try {
-            return Long.parseLong(userId.toString());
-        } catch (Exception e) {
-            return null;
-        }
-    }
 }
-
@@ -0,0 +1,33 @@
+package com.example.admin.websocket;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process bus: delivers straight to this node's sessions.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.bus", havingValue = "local", matchIfMissing = true)
+public class LocalNotificationBus implements NotificationBus {
+
+    private final WebSocketSessionManager sessionManager;
+
+    public LocalNotificationBus(WebSocketSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    @Override
+    public void sendToUser(Long userId, String payload) {
+        sessionManager.sendToUser(userId, payload);
+    }
+
+    @Override
+    public void broadcast(String payload) {
+        sessionManager.broadcast(payload);
+    }
+
+    @Override
+    public void publish(String topic, String payload) {
+        sessionManager.publish(topic, payload);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.admin.websocket;
+
+/**
+ * Routes WebSocket payloads to whichever node holds the target sessions.
+ * <p>
+ * Selected by {@code app.websocket.bus}: {@code local} (single node, default) or {@code jdbc} (several nodes sharing
+ * the database).
+ */
+public interface NotificationBus {
+
+    void sendToUser(Long userId, String payload);
+
+    void broadcast(String payload);
+
+    /** Deliver to the sessions subscribed to {@code topic}, on every node. */
+    void publish(String topic, String payload);
+}
@@ -1,7 +1,11 @@
 package com.example.admin.websocket;
 
 import com.example.admin.dto.notification.NotificationDto;
+import com.example.admin.security.PermissionCache;
 import com.example.admin.service.NotificationService;
+import com.example.admin.service.PermissionService;
+import com.example.admin.service.impl.StatsLiveFeed;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
@@ -16,19 +20,29 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 public class NotificationWebSocketHandler extends TextWebSocketHandler {
 
     private static final int INIT_UNREAD_LIMIT = 50;
+    private static final String STATS_PERMISSION = "stats:view";
 
     private final WebSocketSessionManager sessionManager;
     private final NotificationService notificationService;
     private final ObjectMapper objectMapper;
+    private final PermissionService permissionService;
+    private final PermissionCache permissionCache;
+    private final StatsLiveFeed statsLiveFeed;
 
     public NotificationWebSocketHandler(
             WebSocketSessionManager sessionManager,
             NotificationService notificationService,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            PermissionService permissionService,
+            PermissionCache permissionCache,
+            StatsLiveFeed statsLiveFeed
     ) {
         this.sessionManager = sessionManager;
         this.notificationService = notificationService;
         this.objectMapper = objectMapper;
+        this.permissionService = permissionService;
+        this.permissionCache = permissionCache;
+        this.statsLiveFeed = statsLiveFeed;
     }
 
     @Override
@@ -44,12 +58,54 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         try {
             List<NotificationDto> unread = notificationService.listUnread(userId, INIT_UNREAD_LIMIT);
             String payload = objectMapper.writeValueAsString(new WsMessage("init", unread));
-            session.sendMessage(new TextMessage(payload));
+            // Through the manager so it is serialized with concurrent pushes to the same session.
+            sessionManager.sendToSession(userId, session.getId(), payload);
         } catch (Exception e) {
             log.debug("WebSocket init send failed: userId={}, sessionId={}", userId, session.getId(), e);
         }
     }
 
+    /**
+     * Client commands: {@code {"type":"subscribe","topic":"stats"}} (answered with a "stats.snapshot", followed by
+     * "stats.delta" pushes; needs stats:view) and {@code {"type":"unsubscribe","topic":"stats"}}.
+     */
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Long userId = getUserId(session);
+        if (userId == null) {
+            return;
+        }
+        JsonNode command;
+        try {
+            command = objectMapper.readTree(message.getPayload());
+        } catch (Exception e) {
+            return;
+        }
+        String type = command.path("type").asText();
+        if (!StatsLiveFeed.TOPIC.equals(command.path("topic").asText())) {
+            return;
+        }
+
+        try {
+            if ("unsubscribe".equals(type)) {
+                sessionManager.unsubscribe(session.getId(), StatsLiveFeed.TOPIC);
+            } else if ("subscribe".equals(type)) {
+                if (!permissionCache.get(userId, permissionService::getPermissionsByUserId).contains(STATS_PERMISSION)) {
+                    sessionManager.sendToSession(userId, session.getId(),
+                            objectMapper.writeValueAsString(new WsMessage("error", "权限不足")));
+                    return;
+                }
+                // Subscribe first: a delta numbered after the snapshot then always reaches this session, and one the
+                // snapshot already counts is recognized by its seq and ignored by the client.
+                sessionManager.subscribe(userId, session.getId(), StatsLiveFeed.TOPIC);
+                sessionManager.sendToSession(userId, session.getId(),
+                        objectMapper.writeValueAsString(new WsMessage("stats.snapshot", statsLiveFeed.snapshot())));
+            }
+        } catch (Exception e) {
+            log.debug("WebSocket command failed: userId={}, sessionId={}", userId, session.getId(), e);
+        }
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         Long userId = getUserId(session);
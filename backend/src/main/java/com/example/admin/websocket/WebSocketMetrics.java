@@ -0,0 +1,17 @@
+package com.example.admin.websocket;
+
+/**
+ * Outbound WebSocket counters of this node since startup.
+ *
+ * @param messagesDropped messages discarded because a session's queue overflowed or its session was closed
+ * @param slowSends       sends that took longer than {@code app.websocket.slow-send-ms}
+ * @param sessionsClosed  sessions closed for exceeding the send time limit, overflowing the queue or failing a send
+ */
+public record WebSocketMetrics(
+        int onlineUsers,
+        int sessions,
+        long messagesSent,
+        long messagesDropped,
+        long slowSends,
+        long sessionsClosed
+) {}
@@ -1,73 +1,403 @@
 package com.example.admin.websocket;
 
-import java.io.IOException;
-import java.util.Set;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 
+/**
+ * Online WebSocket sessions by user id.
+ * <p>
+ * Every session has its own outbound queue, bounded to {@code app.websocket.buffer-size-limit} bytes, drained by one
+ * task at a time on the shared sender pool ({@code sender-threads}), so a user's messages stay in order and a client
+ * that stops reading only holds up its own queue. When the queue is full, TERMINATE (default) disconnects the
+ * session and DROP discards its oldest messages. A watchdog disconnects sessions whose current write has been
+ * running longer than {@code send-time-limit-ms}; on Tomcat the same limit is also set as the blocking send timeout
+ * so the stuck write gives its sender thread back.
+ * <p>
+ * Producers never touch the network: they only enqueue. Broadcasts encode the payload once.
+ * <p>
+ * Sessions may also subscribe to topics (e.g. the live stats stream); {@link #publish} reaches only those sessions.
+ */
 @Slf4j
 @Component
 public class WebSocketSessionManager {
 
-    private final ConcurrentMap<Long, Set<WebSocketSession>> sessionsByUserId = new ConcurrentHashMap<>();
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    /** Messages one drain task sends before yielding its thread to other sessions. */
+    private static final int DRAIN_BATCH = 64;
+
+    /** userId -> (sessionId -> outbound queue) */
+    private final ConcurrentMap<Long, Map<String, Outbound>> sessionsByUserId = new ConcurrentHashMap<>();
+    /** topic -> (sessionId -> userId) */
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> subscribersByTopic = new ConcurrentHashMap<>();
+
+    private final int sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy;
+    /** A send that takes longer than this is counted as slow in the metrics. */
+    private final long slowSendMs;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService watchdog;
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesDropped = new AtomicLong();
+    private final AtomicLong slowSends = new AtomicLong();
+    private final AtomicLong sessionsClosed = new AtomicLong();
+
+    public WebSocketSessionManager(
+            @Value("${app.websocket.send-time-limit-ms:10000}") int sendTimeLimitMs,
+            @Value("${app.websocket.buffer-size-limit:524288}") int bufferSizeLimit,
+            @Value("${app.websocket.overflow-strategy:TERMINATE}") ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy,
+            @Value("${app.websocket.slow-send-ms:1000}") long slowSendMs,
+            @Value("${app.websocket.sender-threads:4}") int senderThreads
+    ) {
+        this.sendTimeLimitMs = Math.max(1, sendTimeLimitMs);
+        this.bufferSizeLimit = Math.max(1, bufferSizeLimit);
+        this.overflowStrategy = overflowStrategy;
+        this.slowSendMs = slowSendMs;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread t = new Thread(r, "ws-sender-" + threadNo.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-send-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long checkMs = Math.max(50, Math.min(1000, this.sendTimeLimitMs / 4));
+        watchdog.scheduleWithFixedDelay(this::closeStalledSessions, checkMs, checkMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchdog.shutdownNow();
+        senders.shutdown();
+    }
 
     public void addSession(Long userId, WebSocketSession session) {
         if (userId == null || session == null) {
             return;
         }
-        sessionsByUserId.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(session);
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            jakarta.websocket.Session standard = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+            if (standard != null) {
+                standard.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, (long) sendTimeLimitMs);
+            }
+        }
+        sessionsByUserId.computeIfAbsent(userId, k -> new ConcurrentHashMap<>())
+                .put(session.getId(), new Outbound(userId, session));
     }
 
     public void removeSession(Long userId, WebSocketSession session) {
         if (userId == null || session == null) {
             return;
         }
-        Set<WebSocketSession> sessions = sessionsByUserId.get(userId);
+        Map<String, Outbound> sessions = sessionsByUserId.get(userId);
         if (sessions == null) {
             return;
         }
-        sessions.remove(session);
+        Outbound outbound = sessions.remove(session.getId());
+        if (outbound != null) {
+            outbound.discard();
+        }
         if (sessions.isEmpty()) {
             sessionsByUserId.remove(userId, sessions);
         }
+        for (Map<String, Long> subscribers : subscribersByTopic.values()) {
+            subscribers.remove(session.getId());
+        }
+    }
+
+    public void subscribe(Long userId, String sessionId, String topic) {
+        if (userId == null || sessionId == null || topic == null) {
+            return;
+        }
+        subscribersByTopic.computeIfAbsent(topic, k -> new ConcurrentHashMap<>()).put(sessionId, userId);
+    }
+
+    public void unsubscribe(String sessionId, String topic) {
+        if (sessionId == null || topic == null) {
+            return;
+        }
+        Map<String, Long> subscribers = subscribersByTopic.get(topic);
+        if (subscribers != null) {
+            subscribers.remove(sessionId);
+        }
+    }
+
+    public int subscriberCount(String topic) {
+        Map<String, Long> subscribers = topic == null ? null : subscribersByTopic.get(topic);
+        return subscribers == null ? 0 : subscribers.size();
     }
 
     public boolean isOnline(Long userId) {
-        Set<WebSocketSession> sessions = userId == null ? null : sessionsByUserId.get(userId);
+        Map<String, Outbound> sessions = userId == null ? null : sessionsByUserId.get(userId);
         return sessions != null && !sessions.isEmpty();
     }
 
+    public int onlineUserCount() {
+        return sessionsByUserId.size();
+    }
+
+    /**
+     * Queue a message to all sessions of a user; returns without waiting for network I/O.
+     */
     public void sendToUser(Long userId, String payload) {
         if (userId == null || payload == null) {
             return;
         }
-        Set<WebSocketSession> sessions = sessionsByUserId.get(userId);
+        Map<String, Outbound> sessions = sessionsByUserId.get(userId);
         if (sessions == null || sessions.isEmpty()) {
             return;
         }
-        for (WebSocketSession session : sessions) {
-            if (session == null || !session.isOpen()) {
+        TextMessage message = encode(payload);
+        for (Outbound outbound : sessions.values()) {
+            outbound.offer(message);
+        }
+    }
+
+    /**
+     * Queue a message to one session of a user (e.g. the initial snapshot after connect).
+     */
+    public void sendToSession(Long userId, String sessionId, String payload) {
+        if (userId == null || sessionId == null || payload == null) {
+            return;
+        }
+        Map<String, Outbound> sessions = sessionsByUserId.get(userId);
+        Outbound outbound = sessions == null ? null : sessions.get(sessionId);
+        if (outbound != null) {
+            outbound.offer(encode(payload));
+        }
+    }
+
+    /**
+     * Queue a message to every online session. The payload is encoded once and the caller never waits for network
+     * I/O.
+     */
+    public void broadcast(String payload) {
+        if (payload == null) {
+            return;
+        }
+        TextMessage message = encode(payload);
+        for (Map<String, Outbound> sessions : sessionsByUserId.values()) {
+            for (Outbound outbound : sessions.values()) {
+                outbound.offer(message);
+            }
+        }
+    }
+
+    /**
+     * Queue a message to the sessions subscribed to a topic on this node; encoded once, like {@link #broadcast}.
+     */
+    public void publish(String topic, String payload) {
+        if (topic == null || payload == null) {
+            return;
+        }
+        Map<String, Long> subscribers = subscribersByTopic.get(topic);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        TextMessage message = encode(payload);
+        for (var entry : subscribers.entrySet()) {
+            Map<String, Outbound> sessions = sessionsByUserId.get(entry.getValue());
+            Outbound outbound = sessions == null ? null : sessions.get(entry.getKey());
+            if (outbound == null) {
+                subscribers.remove(entry.getKey());
                 continue;
             }
+            outbound.offer(message);
+        }
+    }
+
+    public WebSocketMetrics metrics() {
+        int sessions = sessionsByUserId.values().stream().mapToInt(Map::size).sum();
+        return new WebSocketMetrics(
+                sessionsByUserId.size(),
+                sessions,
+                messagesSent.get(),
+                messagesDropped.get(),
+                slowSends.get(),
+                sessionsClosed.get()
+        );
+    }
+
+    /**
+     * Built from the UTF-8 bytes so the length checks of every session reuse one encoding.
+     */
+    private static TextMessage encode(String payload) {
+        return new TextMessage(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void closeStalledSessions() {
+        long now = System.currentTimeMillis();
+        for (Map<String, Outbound> sessions : sessionsByUserId.values()) {
+            for (Outbound outbound : sessions.values()) {
+                long startedAt = outbound.sendStartedAt;
+                if (startedAt != 0 && now - startedAt > sendTimeLimitMs) {
+                    outbound.terminate("send time limit exceeded");
+                }
+            }
+        }
+    }
+
+    /**
+     * Outbound queue of one session. At most one drain task per session runs at a time, which is what serializes
+     * writes to the underlying session.
+     */
+    private final class Outbound {
+
+        private final Long userId;
+        private final WebSocketSession session;
+        /** Guarded by this. */
+        private final Deque<TextMessage> queue = new ArrayDeque<>();
+        /** Guarded by this. */
+        private int queuedBytes;
+        /** Guarded by this: a drain task is scheduled or running. */
+        private boolean draining;
+        /** Guarded by this. */
+        private boolean closed;
+        /** Start of the write in progress; 0 when idle. */
+        private volatile long sendStartedAt;
+
+        private Outbound(Long userId, WebSocketSession session) {
+            this.userId = userId;
+            this.session = session;
+        }
+
+        private void offer(TextMessage message) {
+            int bytes = message.getPayloadLength();
+            boolean overflow = false;
+            boolean schedule = false;
+            synchronized (this) {
+                if (closed) {
+                    messagesDropped.incrementAndGet();
+                    return;
+                }
+                // A single message larger than the limit still goes out on an empty queue.
+                if (!queue.isEmpty() && queuedBytes + bytes > bufferSizeLimit) {
+                    if (overflowStrategy == ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE) {
+                        overflow = true;
+                    } else {
+                        while (!queue.isEmpty() && queuedBytes + bytes > bufferSizeLimit) {
+                            queuedBytes -= queue.pollFirst().getPayloadLength();
+                            messagesDropped.incrementAndGet();
+                        }
+                    }
+                }
+                if (!overflow) {
+                    queue.addLast(message);
+                    queuedBytes += bytes;
+                    schedule = !draining;
+                    draining = true;
+                }
+            }
+            if (overflow) {
+                messagesDropped.incrementAndGet();
+                terminate("buffer size limit exceeded");
+            } else if (schedule) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down.
+                discard();
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                TextMessage message;
+                synchronized (this) {
+                    message = closed ? null : queue.pollFirst();
+                    if (message == null) {
+                        draining = false;
+                        return;
+                    }
+                    queuedBytes -= message.getPayloadLength();
+                }
+                send(message);
+            }
+            // Still draining: continue in a new task so other sessions get the thread in between.
+            scheduleDrain();
+        }
+
+        private void send(TextMessage message) {
+            long startedAt = System.currentTimeMillis();
+            sendStartedAt = startedAt;
             try {
-                session.sendMessage(new TextMessage(payload));
-            } catch (IOException e) {
+                if (!session.isOpen()) {
+                    discard();
+                    return;
+                }
+                session.sendMessage(message);
+                messagesSent.incrementAndGet();
+            } catch (Exception e) {
+                // Includes the write aborted by the watchdog or the container's blocking send timeout.
                 log.debug("WebSocket send failed: userId={}, sessionId={}", userId, session.getId(), e);
+                terminate("send failed");
+            } finally {
+                sendStartedAt = 0;
+                if (System.currentTimeMillis() - startedAt > slowSendMs) {
+                    slowSends.incrementAndGet();
+                }
             }
         }
-    }
 
-    public void broadcast(String payload) {
-        if (payload == null) {
-            return;
+        /**
+         * Close the session as not reliable and drop what is still queued.
+         */
+        private void terminate(String reason) {
+            if (!discard()) {
+                return;
+            }
+            sessionsClosed.incrementAndGet();
+            removeSession(userId, session);
+            log.debug("WebSocket session closed ({}): userId={}, sessionId={}", reason, userId, session.getId());
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception ignored) {
+                // ignore
+            }
         }
-        for (var entry : sessionsByUserId.entrySet()) {
-            sendToUser(entry.getKey(), payload);
+
+        /**
+         * Stop accepting messages and drop the queued ones; false if already closed.
+         */
+        private synchronized boolean discard() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            messagesDropped.addAndGet(queue.size());
+            queue.clear();
+            queuedBytes = 0;
+            return true;
         }
     }
 }
-
@@ -0,0 +1,101 @@
+package com.example.admin.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesOnceOverTheBound() throws Exception {
+        BoundedCache<Integer, String> cache = BoundedCache.ofEntries(8, 0);
+        for (int i = 0; i < 8; i++) {
+            cache.put(i, "v" + i);
+        }
+        // Touch 0 after the access-stamp granularity, so it is the most recently used.
+        Thread.sleep(1100);
+        Assertions.assertEquals("v0", cache.get(0));
+
+        cache.put(8, "v8");
+
+        // Trimmed back to 7/8 of the bound, oldest first.
+        Assertions.assertEquals(7, cache.size());
+        Assertions.assertEquals("v0", cache.get(0));
+        Assertions.assertEquals("v8", cache.get(8));
+        Assertions.assertNull(cache.get(1));
+        Assertions.assertNull(cache.get(2));
+    }
+
+    @Test
+    void boundsTheSummedWeightAndSkipsValuesHeavierThanTheBound() {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(100, 0, bytes -> bytes.length);
+        cache.put("big", new byte[101]);
+        Assertions.assertNull(cache.get("big"));
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, new byte[30]);
+            Assertions.assertTrue(cache.weight() <= 100, "weight " + cache.weight());
+        }
+        cache.put("k9", new byte[10]);
+        Assertions.assertTrue(cache.weight() <= 100);
+        Assertions.assertEquals(10, cache.get("k9").length);
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.weight());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws Exception {
+        BoundedCache<String, String> cache = BoundedCache.ofEntries(10, 200);
+        cache.put("a", "1");
+        Assertions.assertEquals("1", cache.get("a"));
+        Thread.sleep(300);
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(0, cache.weight());
+    }
+
+    @Test
+    void weightStaysConsistentUnderConcurrentPutsAndRemoves() throws Exception {
+        BoundedCache<Integer, byte[]> cache = new BoundedCache<>(4096, 0, bytes -> bytes.length);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = random.nextInt(500);
+                        switch (random.nextInt(4)) {
+                            case 0 -> cache.remove(key);
+                            case 1 -> cache.removeIf(k -> k == key);
+                            default -> cache.put(key, new byte[1 + random.nextInt(64)]);
+                        }
+                        cache.get(random.nextInt(500));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long summed = 0;
+        for (int key = 0; key < 500; key++) {
+            byte[] value = cache.get(key);
+            summed += value == null ? 0 : value.length;
+        }
+        Assertions.assertEquals(summed, cache.weight());
+        // A last put settles any overshoot left by a writer that lost the eviction race.
+        cache.put(-1, new byte[1]);
+        Assertions.assertTrue(cache.weight() <= 4096, "weight " + cache.weight());
+    }
+}
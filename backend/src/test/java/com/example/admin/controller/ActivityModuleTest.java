@@ -7,16 +7,26 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.admin.service.impl.ActivityDonationCounter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -32,6 +42,12 @@ class ActivityModuleTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActivityDonationCounter donationCounter;
+
     @Test
     void activityModuleEndToEnd() throws Exception {
         String adminToken = login("admin", "admin123");
@@ -130,6 +146,12 @@ class ActivityModuleTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(0));
 
+        // donatedAmount includes not-yet-compacted stripes.
+        mockMvc.perform(get("/api/activities/" + futureActivityId + "/public"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.donatedAmount").value(15.0));
+
         // Favorite is idempotent and can be unfavorited.
         mockMvc.perform(post("/api/activities/" + futureActivityId + "/favorite")
                         .header("Authorization", "Bearer " + aliceToken))
@@ -180,6 +202,206 @@ class ActivityModuleTest {
                 .andExpect(jsonPath("$.code").value(0));
     }
 
+    @Test
+    void signupShouldRespectMaxParticipants() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        createUser(adminToken, "cap_u1", "cap12345");
+        createUser(adminToken, "cap_u2", "cap12345");
+        createUser(adminToken, "cap_u3", "cap12345");
+        String t1 = login("cap_u1", "cap12345");
+        String t2 = login("cap_u2", "cap12345");
+        String t3 = login("cap_u3", "cap12345");
+
+        // maxParticipants is 2.
+        String activityId = createActivity(
+                adminToken,
+                "a_capacity",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        // Full.
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t3))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400));
+
+        // Cancel frees a seat.
+        mockMvc.perform(put("/api/activities/" + activityId + "/signup/cancel").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t3))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.status").value("SIGNED"));
+
+        // Re-signup after cancel competes for the same seats.
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void doubleSubmittedCancelAndResignupMoveOneSeat() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "twice_u1", "twice12345");
+        String t1 = login("twice_u1", "twice12345");
+        String activityId = createActivity(
+                adminToken,
+                "a_capacity_twice",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(1, signupCount(activityId));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 5; round++) {
+                twice(pool, () -> mockMvc.perform(put("/api/activities/" + activityId + "/signup/cancel")
+                        .header("Authorization", "Bearer " + t1)).andReturn());
+                Assertions.assertEquals(0, signupCount(activityId), "after cancel, round " + round);
+
+                twice(pool, () -> mockMvc.perform(post("/api/activities/" + activityId + "/signup")
+                        .header("Authorization", "Bearer " + t1)).andReturn());
+                Assertions.assertEquals(1, signupCount(activityId), "after re-signup, round " + round);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the same request twice at (nearly) the same moment, like a double-clicked button.
+     */
+    private static void twice(ExecutorService pool, Callable<MvcResult> request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MvcResult>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return request.call();
+            }));
+        }
+        start.countDown();
+        for (Future<MvcResult> result : results) {
+            Assertions.assertEquals(200, result.get().getResponse().getStatus());
+        }
+    }
+
+    @Test
+    void seatsTakenOnAnotherNodeAreHonoured() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        createUser(adminToken, "node_u1", "node12345");
+        createUser(adminToken, "node_u2", "node12345");
+        String t1 = login("node_u1", "node12345");
+        String t2 = login("node_u2", "node12345");
+
+        // maxParticipants is 2.
+        String activityId = createActivity(
+                adminToken,
+                "a_capacity_nodes",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(1, signupCount(activityId));
+
+        // Another node takes the last seat; this node's ledger still believes one is free.
+        jdbcTemplate.update(
+                "UPDATE biz_activity SET signup_count = signup_count + 1 WHERE id = ?", Long.valueOf(activityId));
+
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400));
+        Assertions.assertEquals(2, signupCount(activityId));
+
+        // The other node's signup is canceled: the seat is free again for everyone.
+        jdbcTemplate.update(
+                "UPDATE biz_activity SET signup_count = signup_count - 1 WHERE id = ?", Long.valueOf(activityId));
+        mockMvc.perform(put("/api/activities/" + activityId + "/signup/cancel").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(0, signupCount(activityId));
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(1, signupCount(activityId));
+    }
+
+    @Test
+    void compactionFoldsStripesButLeavesDeletedActivitiesAlone() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "stripe_u1", "stripe123");
+        String token = login("stripe_u1", "stripe123");
+
+        String activityId = createActivity(
+                adminToken,
+                "a_stripes",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+        donateToActivity(token, activityId, 7);
+
+        donationCounter.compact();
+        Assertions.assertEquals(0, new BigDecimal("7").compareTo(donatedAmount(activityId)));
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(stripeSum(activityId)));
+
+        donateToActivity(token, activityId, 3);
+        mockMvc.perform(delete("/api/activities/" + activityId).header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        // The logically deleted row cannot take the amount, so the stripes must keep it.
+        donationCounter.compact();
+        Assertions.assertEquals(0, new BigDecimal("3").compareTo(stripeSum(activityId)));
+        Assertions.assertEquals(0, new BigDecimal("7").compareTo(donatedAmount(activityId)));
+    }
+
+    private void donateToActivity(String token, String activityId, int amount) throws Exception {
+        mockMvc.perform(post("/api/activities/" + activityId + "/donations")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":" + amount + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+    }
+
+    private BigDecimal donatedAmount(String activityId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT donated_amount FROM biz_activity WHERE id = ?", BigDecimal.class, Long.valueOf(activityId));
+    }
+
+    private BigDecimal stripeSum(String activityId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM biz_activity_donation_stripe WHERE activity_id = ?",
+                BigDecimal.class,
+                Long.valueOf(activityId));
+    }
+
+    private int signupCount(String activityId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT signup_count FROM biz_activity WHERE id = ?", Integer.class, Long.valueOf(activityId));
+        return count == null ? 0 : count;
+    }
+
     private boolean containsTitle(JsonNode listResponse, String title) {
         for (JsonNode item : listResponse.at("/data/records")) {
             if (title.equals(item.at("/title").asText())) {
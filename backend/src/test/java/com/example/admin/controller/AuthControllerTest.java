@@ -36,6 +36,37 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.code").value(401));
     }
 
+    @Test
+    void repeatedAccessTokenIsServedAndTamperedTokenRejected() throws Exception {
+        MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String accessToken = objectMapper.readTree(loginResult.getResponse().getContentAsString()).at("/data/token").asText();
+        String refreshToken = objectMapper.readTree(loginResult.getResponse().getContentAsString()).at("/data/refreshToken").asText();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/auth/me").header("Authorization", "Bearer " + accessToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.username").value("admin"));
+        }
+
+        // A cached verification must not leak to a token with a different signature. The character flipped is in
+        // the middle of the signature: the last base64url character of an HS256 signature also carries padding bits.
+        int signatureStart = accessToken.lastIndexOf('.') + 1;
+        int flip = signatureStart + (accessToken.length() - signatureStart) / 2;
+        char[] chars = accessToken.toCharArray();
+        chars[flip] = chars[flip] == 'A' ? 'B' : 'A';
+        String tampered = new String(chars);
+        mockMvc.perform(get("/api/auth/me").header("Authorization", "Bearer " + tampered))
+                .andExpect(status().isUnauthorized());
+
+        // A refresh token is not an access token.
+        mockMvc.perform(get("/api/auth/me").header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void loginRefreshMeHappyPath() throws Exception {
         MvcResult loginResult = mockMvc.perform(post("/api/auth/login")
@@ -7,19 +7,35 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.admin.mapper.BizCrowdfundingProjectMapper;
+import com.example.admin.service.impl.CrowdfundingRaisedAmountAggregator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -32,6 +48,12 @@ class CrowdfundingModuleTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BizCrowdfundingProjectMapper projectMapper;
+
     @Test
     void crowdfundingEndToEnd() throws Exception {
         String adminToken = login("admin", "admin123");
@@ -189,6 +211,209 @@ class CrowdfundingModuleTest {
         Assertions.assertTrue(containsTitle(publicList2, "p3_new"));
     }
 
+    @Test
+    void donationRecordsCanBePagedByCursor() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "carol_cf", "carol123");
+        String carolToken = login("carol_cf", "carol123");
+
+        String projectId = createProject(carolToken, "p_cursor", LocalDateTime.now().plusDays(2).withNano(0), 100);
+        reviewProject(adminToken, projectId, "APPROVE");
+        for (int i = 1; i <= 5; i++) {
+            donate(carolToken, projectId, i, false);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (JsonNode item : listAllDonations(adminToken, 1, 50, projectId).at("/data/records")) {
+            expected.add(item.at("/id").asText());
+        }
+        Assertions.assertEquals(5, expected.size());
+
+        // Walk the keyset pages: same rows in the same order, no total, null cursor on the last page.
+        List<String> walked = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            JsonNode page = listDonationsByCursor(adminToken, 2, projectId, cursor);
+            Assertions.assertEquals(-1, page.at("/data/total").asLong());
+            for (JsonNode item : page.at("/data/records")) {
+                walked.add(item.at("/id").asText());
+            }
+            JsonNode next = page.at("/data/nextCursor");
+            cursor = next.isNull() || next.isMissingNode() ? null : next.asText();
+            pages++;
+        }
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(expected, walked);
+
+        mockMvc.perform(get("/api/crowdfunding/donations")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void donationRecordsCanSkipOrEstimateTheCount() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "dave_cf", "dave123");
+        String daveToken = login("dave_cf", "dave123");
+
+        String projectId = createProject(daveToken, "p_count", LocalDateTime.now().plusDays(2).withNano(0), 100);
+        reviewProject(adminToken, projectId, "APPROVE");
+        for (int i = 1; i <= 3; i++) {
+            donate(daveToken, projectId, i, false);
+        }
+
+        JsonNode exact = listDonationsCounting(adminToken, 1, projectId, null);
+        Assertions.assertEquals(3, exact.at("/data/total").asLong());
+        Assertions.assertTrue(exact.at("/data/hasNext").asBoolean());
+
+        JsonNode none1 = listDonationsCounting(adminToken, 1, projectId, "none");
+        Assertions.assertEquals(-1, none1.at("/data/total").asLong());
+        Assertions.assertEquals(2, none1.at("/data/records").size());
+        Assertions.assertTrue(none1.at("/data/hasNext").asBoolean());
+        JsonNode none2 = listDonationsCounting(adminToken, 2, projectId, "none");
+        Assertions.assertEquals(1, none2.at("/data/records").size());
+        Assertions.assertFalse(none2.at("/data/hasNext").asBoolean());
+        Assertions.assertEquals(
+                exact.at("/data/records/0/id").asText(), none1.at("/data/records/0/id").asText());
+
+        JsonNode approx = listDonationsCounting(adminToken, 1, projectId, "approx");
+        Assertions.assertEquals(3, approx.at("/data/total").asLong());
+        Assertions.assertTrue(approx.at("/data/hasNext").asBoolean());
+
+        // Unfiltered: table statistics, or a cached count where there are none (H2).
+        MvcResult unfiltered = mockMvc.perform(get("/api/crowdfunding/donations")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("size", "2")
+                        .param("count", "approx"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        JsonNode unfilteredJson = objectMapper.readTree(unfiltered.getResponse().getContentAsString());
+        Assertions.assertTrue(unfilteredJson.at("/data/total").asLong() >= 3);
+
+        mockMvc.perform(get("/api/crowdfunding/donations")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("count", "maybe"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void concurrentDonationsAreAllAddedToRaisedAmount() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "erin_cf", "erin123");
+        String erinToken = login("erin_cf", "erin123");
+
+        String projectId = createProject(erinToken, "p_concurrent", LocalDateTime.now().plusDays(2).withNano(0), 1000);
+        reviewProject(adminToken, projectId, "APPROVE");
+
+        int donors = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(donors);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 1; i <= donors; i++) {
+                int amount = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    donate(erinToken, projectId, amount, false);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // raised_amount = raised_amount + ? per donation: no lost updates.
+        Assertions.assertEquals(0, new BigDecimal("36").compareTo(raisedAmount(projectId)));
+    }
+
+    @Test
+    void writeBehindMergesDonationsIntoOneUpdatePerFlush() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "frank_cf", "frank123");
+        String frankToken = login("frank_cf", "frank123");
+        String projectId = createProject(
+                frankToken, "p_write_behind", LocalDateTime.now().plusDays(2).withNano(0), 100);
+        Long id = Long.valueOf(projectId);
+
+        AtomicInteger updates = new AtomicInteger();
+        CrowdfundingRaisedAmountAggregator aggregator = new CrowdfundingRaisedAmountAggregator(
+                countingMapper(updates, new AtomicBoolean(false)), true, 60_000);
+        aggregator.add(id, new BigDecimal("1"));
+        aggregator.add(id, new BigDecimal("2"));
+        aggregator.add(id, new BigDecimal("3.50"));
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(raisedAmount(projectId)));
+
+        aggregator.flush();
+        Assertions.assertEquals(1, updates.get());
+        Assertions.assertEquals(0, new BigDecimal("6.50").compareTo(raisedAmount(projectId)));
+
+        // Nothing pending: no further writes.
+        aggregator.flush();
+        Assertions.assertEquals(1, updates.get());
+    }
+
+    @Test
+    void writeBehindKeepsDeltasWhenAFlushFails() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "grace_cf", "grace123");
+        String graceToken = login("grace_cf", "grace123");
+        String projectId = createProject(graceToken, "p_flush_retry", LocalDateTime.now().plusDays(2).withNano(0), 100);
+        Long id = Long.valueOf(projectId);
+
+        AtomicInteger updates = new AtomicInteger();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        CrowdfundingRaisedAmountAggregator aggregator = new CrowdfundingRaisedAmountAggregator(
+                countingMapper(updates, failing), true, 60_000);
+        aggregator.add(id, new BigDecimal("5"));
+        Assertions.assertThrows(IllegalStateException.class, aggregator::flush);
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(raisedAmount(projectId)));
+
+        // The failed delta is merged back and goes out with the next one.
+        failing.set(false);
+        aggregator.add(id, new BigDecimal("2"));
+        aggregator.flush();
+        Assertions.assertEquals(1, updates.get());
+        Assertions.assertEquals(0, new BigDecimal("7").compareTo(raisedAmount(projectId)));
+    }
+
+    private BigDecimal raisedAmount(String projectId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT raised_amount FROM biz_crowdfunding_project WHERE id = ?",
+                BigDecimal.class,
+                Long.valueOf(projectId));
+    }
+
+    /**
+     * The real mapper, counting successful {@code update} calls and failing them while {@code failing} is set.
+     */
+    private BizCrowdfundingProjectMapper countingMapper(AtomicInteger updates, AtomicBoolean failing) {
+        return (BizCrowdfundingProjectMapper) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {BizCrowdfundingProjectMapper.class},
+                (proxy, method, args) -> {
+                    if ("update".equals(method.getName())) {
+                        if (failing.get()) {
+                            throw new IllegalStateException("database unavailable");
+                        }
+                        updates.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(projectMapper, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
     private boolean containsTitle(JsonNode listResponse, String title) {
         for (JsonNode item : listResponse.at("/data/records")) {
             if (title.equals(item.at("/title").asText())) {
@@ -268,6 +493,34 @@ class CrowdfundingModuleTest {
         return objectMapper.readTree(result.getResponse().getContentAsString());
     }
 
+    private JsonNode listDonationsByCursor(String token, int size, String projectId, String cursor) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/crowdfunding/donations")
+                        .header("Authorization", "Bearer " + token)
+                        .param("size", String.valueOf(size))
+                        .param("projectId", projectId)
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private JsonNode listDonationsCounting(String token, int current, String projectId, String count) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/crowdfunding/donations")
+                .header("Authorization", "Bearer " + token)
+                .param("current", String.valueOf(current))
+                .param("size", "2")
+                .param("projectId", projectId);
+        if (count != null) {
+            request.param("count", count);
+        }
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
     private String createProject(String token, String title, LocalDateTime endTime, int targetAmount) throws Exception {
         String et = endTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
 
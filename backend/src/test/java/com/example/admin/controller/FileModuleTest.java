@@ -1,16 +1,25 @@
 package com.example.admin.controller;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.example.admin.entity.SysFile;
+import com.example.admin.entity.SysFileObject;
 import com.example.admin.mapper.SysFileMapper;
+import com.example.admin.mapper.SysFileObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.UUID;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -35,6 +44,9 @@ class FileModuleTest {
     @Autowired
     private SysFileMapper fileMapper;
 
+    @Autowired
+    private SysFileObjectMapper fileObjectMapper;
+
     @Test
     void fileDownloadAccessControlWorks() throws Exception {
         String adminToken = login("admin", "admin123");
@@ -76,7 +88,7 @@ class FileModuleTest {
     }
 
     @Test
-    void fileListIsUserIsolatedAndPathsUnique() throws Exception {
+    void fileListIsUserIsolatedAndIdenticalContentIsStoredOnce() throws Exception {
         String adminToken = login("admin", "admin123");
 
         long fileId1 = uploadFile(adminToken, "same.txt", "text/plain", "x", "PRIVATE");
@@ -86,7 +98,9 @@ class FileModuleTest {
         SysFile f2 = fileMapper.selectById(fileId2);
         org.junit.jupiter.api.Assertions.assertNotNull(f1);
         org.junit.jupiter.api.Assertions.assertNotNull(f2);
-        org.junit.jupiter.api.Assertions.assertNotEquals(f1.getPath(), f2.getPath());
+        org.junit.jupiter.api.Assertions.assertNotEquals(f1.getId(), f2.getId());
+        org.junit.jupiter.api.Assertions.assertEquals(f1.getObjectId(), f2.getObjectId());
+        org.junit.jupiter.api.Assertions.assertEquals(f1.getPath(), f2.getPath());
 
         String aliceUsername = unique("alice");
         createUser(adminToken, aliceUsername, "alice123");
@@ -101,6 +115,205 @@ class FileModuleTest {
         org.junit.jupiter.api.Assertions.assertFalse(containsId(aliceList.at("/data/records"), fileId2));
     }
 
+    @Test
+    void streamedUploadsShareStorageUntilLastReferenceIsDeleted() throws Exception {
+        String adminToken = login("admin", "admin123");
+        String content = "shared-" + UUID.randomUUID();
+
+        MvcResult streamed = mockMvc.perform(post("/api/files/upload/stream")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("filename", "a.txt")
+                        .param("visibility", "PRIVATE")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content(content))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long streamedId = objectMapper.readTree(streamed.getResponse().getContentAsString()).at("/data/id").asLong();
+        long multipartId = uploadFile(adminToken, "b.txt", "text/plain", content, "PRIVATE");
+
+        SysFile first = fileMapper.selectById(streamedId);
+        SysFile second = fileMapper.selectById(multipartId);
+        org.junit.jupiter.api.Assertions.assertEquals(first.getObjectId(), second.getObjectId());
+        SysFileObject object = fileObjectMapper.selectById(first.getObjectId());
+        org.junit.jupiter.api.Assertions.assertEquals(2, object.getRefCount());
+        org.junit.jupiter.api.Assertions.assertEquals(content.length(), object.getSize());
+        org.junit.jupiter.api.Assertions.assertEquals(64, object.getSha256().length());
+
+        mockMvc.perform(delete("/api/files/" + streamedId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.code").value(0));
+        org.junit.jupiter.api.Assertions.assertEquals(1, fileObjectMapper.selectById(object.getId()).getRefCount());
+        MvcResult remaining = mockMvc.perform(get("/api/files/" + multipartId + "/download")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn();
+        org.junit.jupiter.api.Assertions.assertEquals(content, remaining.getResponse().getContentAsString());
+
+        mockMvc.perform(delete("/api/files/" + multipartId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.code").value(0));
+        org.junit.jupiter.api.Assertions.assertNull(fileObjectMapper.selectById(object.getId()));
+    }
+
+    @Test
+    void downloadSupportsRangesAndConditionalGet() throws Exception {
+        String adminToken = login("admin", "admin123");
+        long fileId = uploadFile(adminToken, "digits.txt", "text/plain", "0123456789", "PUBLIC");
+        String url = "/api/files/" + fileId + "/download";
+        String etag = "\"" + fileId + "-10\"";
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(content().string("0123456789"));
+
+        mockMvc.perform(get(url).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get(url).header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+
+        mockMvc.perform(get(url).header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+
+        MvcResult multi = mockMvc.perform(get(url).header("Range", "bytes=0-1,8-9"))
+                .andExpect(status().isPartialContent())
+                .andReturn();
+        org.junit.jupiter.api.Assertions.assertTrue(
+                multi.getResponse().getContentType().startsWith("multipart/byteranges; boundary="));
+        String multiBody = multi.getResponse().getContentAsString();
+        org.junit.jupiter.api.Assertions.assertTrue(multiBody.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        org.junit.jupiter.api.Assertions.assertTrue(multiBody.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+        org.junit.jupiter.api.Assertions.assertEquals(
+                multiBody.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1).length,
+                multi.getResponse().getContentLengthLong());
+
+        mockMvc.perform(get(url).header("Range", "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+
+        // Stale If-Range: the whole (new) representation is sent instead of a fragment.
+        mockMvc.perform(get(url).header("Range", "bytes=2-5").header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void publicAssetPathIsCacheableAndHidesPrivateFiles() throws Exception {
+        String adminToken = login("admin", "admin123");
+        long publicFileId = uploadFile(adminToken, "cover.png", "image/png", "cover-bytes", "PUBLIC");
+        long privateFileId = uploadFile(adminToken, "secret.txt", "text/plain", "secret", "PRIVATE");
+        String url = "/api/files/public/" + publicFileId;
+
+        for (int i = 0; i < 2; i++) {
+            // Second round is served from the in-memory cache.
+            mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                    .andExpect(header().string("ETag", "\"" + publicFileId + "-11\""))
+                    .andExpect(content().contentType("image/png"))
+                    .andExpect(content().string("cover-bytes"));
+        }
+
+        mockMvc.perform(get(url).header("Range", "bytes=0-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("cover"));
+
+        mockMvc.perform(get(url).header("If-None-Match", "\"" + publicFileId + "-11\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/files/public/" + privateFileId))
+                .andExpect(jsonPath("$.code").value(1008));
+
+        mockMvc.perform(delete("/api/files/" + publicFileId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(get(url))
+                .andExpect(jsonPath("$.code").value(1008));
+    }
+
+    @Test
+    void publicImagesGetResizedVariants() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        BufferedImage image = new BufferedImage(1200, 600, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, UUID.randomUUID().hashCode());
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        MvcResult uploaded = mockMvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", "banner.png", "image/png", png.toByteArray()))
+                        .param("visibility", "PUBLIC")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long fileId = objectMapper.readTree(uploaded.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        MvcResult thumb = awaitVariant("/api/files/public/" + fileId + "?size=thumb", "thumb");
+        org.junit.jupiter.api.Assertions.assertEquals(
+                "max-age=31536000, public, immutable", thumb.getResponse().getHeader("Cache-Control"));
+        BufferedImage thumbImage = ImageIO.read(new ByteArrayInputStream(thumb.getResponse().getContentAsByteArray()));
+        org.junit.jupiter.api.Assertions.assertEquals(240, thumbImage.getWidth());
+        org.junit.jupiter.api.Assertions.assertEquals(120, thumbImage.getHeight());
+
+        MvcResult medium = awaitVariant("/api/files/" + fileId + "/download?size=medium", "medium");
+        BufferedImage mediumImage = ImageIO.read(new ByteArrayInputStream(medium.getResponse().getContentAsByteArray()));
+        org.junit.jupiter.api.Assertions.assertEquals(960, mediumImage.getWidth());
+
+        mockMvc.perform(get("/api/files/public/" + fileId).param("size", "huge"))
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void imagesWithinTheVariantBoxServeTheOriginalAsAFinalVariant() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, UUID.randomUUID().hashCode());
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        MvcResult uploaded = mockMvc.perform(multipart("/api/files/upload")
+                        .file(new MockMultipartFile("file", "icon.png", "image/png", png.toByteArray()))
+                        .param("visibility", "PUBLIC")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long fileId = objectMapper.readTree(uploaded.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        // No thumb will ever be generated: the first answer is already final.
+        MvcResult thumb = mockMvc.perform(get("/api/files/public/" + fileId).param("size", "thumb"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andReturn();
+        org.junit.jupiter.api.Assertions.assertTrue(thumb.getResponse().getHeader("ETag").endsWith("-thumb\""));
+        org.junit.jupiter.api.Assertions.assertArrayEquals(png.toByteArray(), thumb.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(get("/api/files/public/" + fileId).param("size", "original"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+    }
+
+    private MvcResult awaitVariant(String url, String variant) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            MvcResult result = mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            String etag = result.getResponse().getHeader("ETag");
+            if (etag != null && etag.endsWith("-" + variant + "\"")) {
+                return result;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("variant was not generated: " + url);
+    }
+
     private long uploadFile(String token, String filename, String contentType, String content, String visibility) throws Exception {
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -6,16 +6,29 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.example.admin.common.KeysetCursor;
+import com.example.admin.service.impl.NotificationOutbox;
+import com.example.admin.websocket.NotificationBus;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -28,6 +41,12 @@ class NotificationModuleTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Test
     void announceAndReadFlowWorks() throws Exception {
         String adminToken = login("admin", "admin123");
@@ -44,13 +63,19 @@ class NotificationModuleTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.code").value(403));
 
-        // Admin announces.
-        mockMvc.perform(post("/api/notifications/announce")
+        // Admin announces; the fan-out runs in the background.
+        MvcResult announced = mockMvc.perform(post("/api/notifications/announce")
                         .header("Authorization", "Bearer " + adminToken)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"title\":\"notice-1\",\"content\":\"content-1\"}"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.code").value(0));
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data").isString())
+                .andReturn();
+        String jobId = objectMapper.readTree(announced.getResponse().getContentAsString()).at("/data").asText();
+        JsonNode job = awaitAnnouncementJob(adminToken, jobId);
+        org.junit.jupiter.api.Assertions.assertEquals("QUEUED", job.at("/status").asText());
+        org.junit.jupiter.api.Assertions.assertTrue(job.at("/total").isNumber());
 
         // Alice can see the announcement.
         long notifId = findNotificationIdByTitle(aliceToken, "notice-1");
@@ -71,6 +96,202 @@ class NotificationModuleTest {
             }
         }
         org.junit.jupiter.api.Assertions.assertTrue(foundRead);
+
+        // Marking again is a no-op.
+        mockMvc.perform(put("/api/notifications/" + notifId + "/read")
+                        .header("Authorization", "Bearer " + aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+    }
+
+    @Test
+    void announcementIsStoredOnceAndReadStateIsPerUser() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "carol_notif", "carol123");
+        createUser(adminToken, "dave_notif", "dave123");
+        String carolToken = login("carol_notif", "carol123");
+        String daveToken = login("dave_notif", "dave123");
+
+        MvcResult announced = mockMvc.perform(post("/api/notifications/announce")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"notice-2\",\"content\":\"content-2\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        awaitAnnouncementJob(adminToken, objectMapper.readTree(announced.getResponse().getContentAsString()).at("/data").asText());
+
+        Long perUserRows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM sys_notification WHERE title = 'notice-2'", Long.class);
+        org.junit.jupiter.api.Assertions.assertEquals(0L, perUserRows);
+
+        long notifId = findNotificationIdByTitle(carolToken, "notice-2");
+        mockMvc.perform(put("/api/notifications/" + notifId + "/read")
+                        .header("Authorization", "Bearer " + carolToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        org.junit.jupiter.api.Assertions.assertEquals(1, isReadByTitle(carolToken, "notice-2"));
+        org.junit.jupiter.api.Assertions.assertEquals(0, isReadByTitle(daveToken, "notice-2"));
+
+        mockMvc.perform(get("/api/notifications/ws-metrics").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.messagesDropped").isNumber());
+        mockMvc.perform(get("/api/notifications/ws-metrics").header("Authorization", "Bearer " + daveToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void inboxCursorPagesMergePersonalNotificationsAndAnnouncementsById() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "erin_notif", "erin123");
+        String erinToken = login("erin_notif", "erin123");
+        Long erinId = jdbcTemplate.queryForObject("SELECT id FROM sys_user WHERE username = 'erin_notif'", Long.class);
+
+        // Ids above anything else in the inbox, alternating between the two UNION ALL branches.
+        long base = IdWorker.getId() + 1_000_000_000_000L;
+        List<Long> expected = new ArrayList<>();
+        try {
+            for (int i = 1; i <= 7; i++) {
+                long id = base + i;
+                if (i % 2 == 1) {
+                    jdbcTemplate.update("INSERT INTO sys_notification (id, user_id, title, content, type, is_read) "
+                            + "VALUES (?, ?, ?, 'c', 'SYSTEM', 0)", id, erinId, "inbox-" + i);
+                } else {
+                    jdbcTemplate.update("INSERT INTO sys_announcement (id, title, content) VALUES (?, ?, 'c')",
+                            id, "inbox-" + i);
+                }
+                expected.add(0, id);
+            }
+
+            // Pages of 2: each one is cut below the previous page's last id in both branches.
+            List<Long> walked = new ArrayList<>();
+            String cursor = "";
+            while (walked.size() < expected.size()) {
+                MvcResult result = mockMvc.perform(get("/api/notifications")
+                                .header("Authorization", "Bearer " + erinToken)
+                                .param("size", "2")
+                                .param("cursor", cursor))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.code").value(0))
+                        .andExpect(jsonPath("$.data.total").value(-1))
+                        .andReturn();
+                JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+                for (JsonNode item : page.at("/data/records")) {
+                    walked.add(item.at("/id").asLong());
+                }
+                JsonNode next = page.at("/data/nextCursor");
+                if (next.isNull() || next.isMissingNode()) {
+                    break;
+                }
+                cursor = next.asText();
+            }
+            // The last page may go on into announcements older than this test's rows.
+            org.junit.jupiter.api.Assertions.assertTrue(walked.size() >= expected.size(), "walked " + walked);
+            org.junit.jupiter.api.Assertions.assertEquals(expected, walked.subList(0, expected.size()));
+
+            // A cursor past the oldest row is an empty last page.
+            String end = new KeysetCursor(null, 1L).encode();
+            mockMvc.perform(get("/api/notifications")
+                            .header("Authorization", "Bearer " + erinToken)
+                            .param("cursor", end))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.records").isEmpty())
+                    .andExpect(jsonPath("$.data.hasNext").value(false));
+        } finally {
+            jdbcTemplate.update("DELETE FROM sys_announcement WHERE id > ?", base);
+        }
+    }
+
+    @Test
+    void announcementsMadeBeforeAUserRegisteredStayOutOfTheirInbox() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "frank_notif", "frank123");
+        createUser(adminToken, "gina_notif", "gina123");
+        String frankToken = login("frank_notif", "frank123");
+        String ginaToken = login("gina_notif", "gina123");
+
+        String title = "before-gina-" + UUID.randomUUID();
+        long id = IdWorker.getId();
+        jdbcTemplate.update("INSERT INTO sys_announcement (id, title, content, created_at) "
+                + "SELECT ?, ?, 'c', created_at FROM sys_user WHERE username = 'frank_notif'", id, title);
+        // Gina registers an hour after the announcement.
+        jdbcTemplate.update("UPDATE sys_user SET created_at = TIMESTAMPADD(HOUR, 1, created_at) "
+                + "WHERE username = 'gina_notif'");
+        try {
+            org.junit.jupiter.api.Assertions.assertEquals(0, isReadByTitle(frankToken, title));
+            for (JsonNode item : listNotifications(ginaToken, 1, 50).at("/data/records")) {
+                org.junit.jupiter.api.Assertions.assertNotEquals(title, item.at("/title").asText());
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM sys_announcement WHERE id = ?", id);
+        }
+    }
+
+    @Test
+    void pushesWaitForTheCommitRunOffTheCallerThreadAndAreDroppedOnRollback() throws Exception {
+        RecordingBus bus = new RecordingBus();
+        NotificationOutbox outbox = new NotificationOutbox(bus);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        String title = "outbox_" + UUID.randomUUID();
+        try {
+            tx.executeWithoutResult(status -> {
+                jdbcTemplate.update("INSERT INTO sys_notification (id, user_id, title, content, type) "
+                        + "VALUES (?, 1, ?, 'c', 'SYSTEM')", IdWorker.getId(), title);
+                outbox.sendToUser(1L, "rolled-back");
+                status.setRollbackOnly();
+            });
+
+            Thread caller = Thread.currentThread();
+            tx.executeWithoutResult(status -> {
+                jdbcTemplate.update("INSERT INTO sys_notification (id, user_id, title, content, type) "
+                        + "VALUES (?, 1, ?, 'c', 'SYSTEM')", IdWorker.getId(), title);
+                outbox.sendToUser(1L, "committed");
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                org.junit.jupiter.api.Assertions.assertTrue(bus.pushes.isEmpty(), "pushed before commit");
+            });
+
+            Push push = bus.pushes.poll(5, TimeUnit.SECONDS);
+            org.junit.jupiter.api.Assertions.assertNotNull(push);
+            org.junit.jupiter.api.Assertions.assertEquals("committed", push.payload());
+            org.junit.jupiter.api.Assertions.assertNotSame(caller, push.thread());
+            org.junit.jupiter.api.Assertions.assertNull(bus.pushes.poll(300, TimeUnit.MILLISECONDS));
+            org.junit.jupiter.api.Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM sys_notification WHERE title = ?", Integer.class, title));
+        } finally {
+            outbox.stop();
+        }
+    }
+
+    private int isReadByTitle(String token, String title) throws Exception {
+        for (JsonNode item : listNotifications(token, 1, 50).at("/data/records")) {
+            if (title.equals(item.at("/title").asText())) {
+                return item.at("/isRead").asInt();
+            }
+        }
+        throw new AssertionError("notification not found by title: " + title);
+    }
+
+    private JsonNode awaitAnnouncementJob(String adminToken, String jobId) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            MvcResult result = mockMvc.perform(get("/api/notifications/announce/" + jobId)
+                            .header("Authorization", "Bearer " + adminToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(0))
+                    .andReturn();
+            JsonNode job = objectMapper.readTree(result.getResponse().getContentAsString()).at("/data");
+            String status = job.at("/status").asText();
+            if ("QUEUED".equals(status) || "FAILED".equals(status)) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("announcement job did not finish: " + jobId);
     }
 
     private long findNotificationIdByTitle(String token, String title) throws Exception {
@@ -114,4 +335,26 @@ class NotificationModuleTest {
         JsonNode json = objectMapper.readTree(result.getResponse().getContentAsString());
         return json.at("/data/token").asText();
     }
+
+    private record Push(Long userId, String payload, Thread thread) {}
+
+    private static final class RecordingBus implements NotificationBus {
+
+        private final BlockingQueue<Push> pushes = new LinkedBlockingQueue<>();
+
+        @Override
+        public void sendToUser(Long userId, String payload) {
+            pushes.add(new Push(userId, payload, Thread.currentThread()));
+        }
+
+        @Override
+        public void broadcast(String payload) {
+            pushes.add(new Push(null, payload, Thread.currentThread()));
+        }
+
+        @Override
+        public void publish(String topic, String payload) {
+            pushes.add(new Push(null, payload, Thread.currentThread()));
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package com.example.admin.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest(properties = "app.jwt.embed-permissions=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PermissionBitmapTokenTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void accessTokenCarriesPermissionBitmapAndGoesStaleOnRbacChange() throws Exception {
+        String adminToken = login("admin", "admin123");
+        JsonNode adminClaims = claimsOf(adminToken);
+        Assertions.assertTrue(adminClaims.hasNonNull("perms"));
+        Assertions.assertTrue(adminClaims.hasNonNull("perm_epoch"));
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        String username = "bm_" + UUID.randomUUID().toString().substring(0, 8);
+        MvcResult createdUser = mockMvc.perform(post("/api/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"pwd123\",\"nickname\":\"n\",\"status\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long userId = objectMapper.readTree(createdUser.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        MvcResult createdRole = mockMvc.perform(post("/api/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"code\":\"role_" + UUID.randomUUID() + "\",\"name\":\"n\",\"description\":\"d\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long roleId = objectMapper.readTree(createdRole.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        mockMvc.perform(put("/api/roles/" + roleId + "/permissions")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"permissionIds\":[100]}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/users/" + userId + "/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"roleIds\":[" + roleId + "]}"))
+                .andExpect(status().isOk());
+
+        // Token issued after the grant carries user:list.
+        String userToken = login(username, "pwd123");
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        // Revocation makes the embedded bitmap stale; the request falls back to the live permission set.
+        mockMvc.perform(put("/api/roles/" + roleId + "/permissions")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"permissionIds\":[]}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void epochFollowsTheSharedRbacVersion() throws Exception {
+        // Seeds the row if no RBAC change has happened yet in this context.
+        jdbcTemplate.update("INSERT INTO sys_rbac_version (id, version) VALUES (1, 1) "
+                + "ON DUPLICATE KEY UPDATE version = version + 1");
+        long version = jdbcTemplate.queryForObject("SELECT version FROM sys_rbac_version WHERE id = 1", Long.class);
+
+        // Any node issuing a token at this version produces the same epoch, so this node re-reads it within
+        // app.security.rbac-version-check-ms.
+        long deadline = System.currentTimeMillis() + 5000;
+        String epoch;
+        do {
+            Thread.sleep(100);
+            epoch = claimsOf(login("admin", "admin123")).path("perm_epoch").asText();
+        } while (!epoch.startsWith(version + ".") && System.currentTimeMillis() < deadline);
+        Assertions.assertTrue(epoch.startsWith(version + "."), epoch);
+
+        // Stable while the version is unchanged, and the embedded bitmap is accepted.
+        String token = login("admin", "admin123");
+        Assertions.assertEquals(epoch, claimsOf(token).path("perm_epoch").asText());
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+    }
+
+    private JsonNode claimsOf(String token) throws Exception {
+        String payload = token.split("\\.")[1];
+        return objectMapper.readTree(new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8));
+    }
+
+    private String login(String username, String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+
+        JsonNode json = objectMapper.readTree(result.getResponse().getContentAsString());
+        return json.at("/data/token").asText();
+    }
+}
@@ -74,6 +74,33 @@ class RbacCrudTest {
                 .andExpect(jsonPath("$.code").value(0));
     }
 
+    @Test
+    void userListCarriesResolvedPermissions() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        MvcResult result = mockMvc.perform(get("/api/users")
+                        .param("roleCode", "admin")
+                        .param("size", "100")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+
+        JsonNode records = objectMapper.readTree(result.getResponse().getContentAsString()).at("/data/records");
+        boolean found = false;
+        for (JsonNode user : records) {
+            if (!"admin".equals(user.at("/username").asText())) {
+                continue;
+            }
+            for (JsonNode permission : user.at("/permissions")) {
+                if ("user:list".equals(permission.asText())) {
+                    found = true;
+                }
+            }
+        }
+        org.junit.jupiter.api.Assertions.assertTrue(found);
+    }
+
     private String login(String username, String password) throws Exception {
         MvcResult result = mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -9,11 +9,13 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -29,6 +31,9 @@ class RolePermissionAssociationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void rolePermissionAssociationIsConsistent() throws Exception {
         String adminToken = login("admin", "admin123");
@@ -69,6 +74,118 @@ class RolePermissionAssociationTest {
         org.junit.jupiter.api.Assertions.assertTrue(found);
     }
 
+    @Test
+    void permissionChangesTakeEffectImmediately() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        String username = "rp_" + UUID.randomUUID().toString().substring(0, 8);
+        MvcResult createdUser = mockMvc.perform(post("/api/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"pwd123\",\"nickname\":\"n\",\"status\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long userId = objectMapper.readTree(createdUser.getResponse().getContentAsString()).at("/data/id").asLong();
+        String userToken = login(username, "pwd123");
+
+        // No roles yet (also warms the permission cache with an empty set).
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+
+        MvcResult createdRole = mockMvc.perform(post("/api/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"code\":\"role_" + UUID.randomUUID() + "\",\"name\":\"n\",\"description\":\"d\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long roleId = objectMapper.readTree(createdRole.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        mockMvc.perform(put("/api/roles/" + roleId + "/permissions")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"permissionIds\":[100]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(put("/api/users/" + userId + "/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"roleIds\":[" + roleId + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        // Revoking the permission is visible on the very next request.
+        mockMvc.perform(put("/api/roles/" + roleId + "/permissions")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"permissionIds\":[]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void rbacChangesMadeByAnotherNodeReachThisNodesCache() throws Exception {
+        String adminToken = login("admin", "admin123");
+
+        String username = "rn_" + UUID.randomUUID().toString().substring(0, 8);
+        MvcResult createdUser = mockMvc.perform(post("/api/users")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"pwd123\",\"nickname\":\"n\",\"status\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long userId = objectMapper.readTree(createdUser.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        MvcResult createdRole = mockMvc.perform(post("/api/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"code\":\"role_" + UUID.randomUUID() + "\",\"name\":\"n\",\"description\":\"d\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        long roleId = objectMapper.readTree(createdRole.getResponse().getContentAsString()).at("/data/id").asLong();
+
+        mockMvc.perform(put("/api/roles/" + roleId + "/permissions")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"permissionIds\":[100]}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/users/" + userId + "/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"roleIds\":[" + roleId + "]}"))
+                .andExpect(status().isOk());
+
+        // Warms this node's cache with user:list.
+        String userToken = login(username, "pwd123");
+        mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        // Another node revokes the permission: it only shares the database with this one.
+        jdbcTemplate.update("DELETE FROM sys_role_permission WHERE role_id = ?", roleId);
+        jdbcTemplate.update("UPDATE sys_rbac_version SET version = version + 1 WHERE id = 1");
+
+        // Visible once this node re-reads the shared version (app.security.rbac-version-check-ms).
+        long deadline = System.currentTimeMillis() + 5000;
+        int status;
+        do {
+            Thread.sleep(100);
+            status = mockMvc.perform(get("/api/users").header("Authorization", "Bearer " + userToken))
+                    .andReturn().getResponse().getStatus();
+        } while (status != 403 && System.currentTimeMillis() < deadline);
+        Assertions.assertEquals(403, status);
+    }
+
     private String login(String username, String password) throws Exception {
         MvcResult result = mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -6,6 +6,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.admin.service.impl.DbStatsService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDate;
@@ -36,11 +37,15 @@ class StatsModuleTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private DbStatsService statsService;
+
     @Test
     void incomeTrendShouldAggregateCrowdfundingAndActivityDonations() throws Exception {
         // Test isolation: other module tests may have already inserted donation records into the shared H2 database.
         jdbcTemplate.update("DELETE FROM biz_activity_donation");
         jdbcTemplate.update("DELETE FROM biz_crowdfunding_donation");
+        jdbcTemplate.update("DELETE FROM biz_income_daily");
 
         String adminToken = login("admin", "admin123");
 
@@ -95,6 +100,274 @@ class StatsModuleTest {
                 .andExpect(jsonPath("$.code").value(403));
     }
 
+    @Test
+    void incomeRollupCanBeRebuiltFromRawDonations() throws Exception {
+        jdbcTemplate.update("DELETE FROM biz_activity_donation");
+        jdbcTemplate.update("DELETE FROM biz_crowdfunding_donation");
+        jdbcTemplate.update("DELETE FROM biz_income_daily");
+
+        // Rows written behind the application's back (e.g. data from before the rollup existed).
+        LocalDateTime twoDaysAgo = LocalDate.now().minusDays(2).atTime(10, 0);
+        jdbcTemplate.update("INSERT INTO biz_activity_donation (id, activity_id, user_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                91001L, 1L, 1L, 7, twoDaysAgo);
+        jdbcTemplate.update("INSERT INTO biz_crowdfunding_donation (id, project_id, user_id, amount, is_anonymous, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", 91002L, 1L, 1L, 3, 0, twoDaysAgo);
+
+        String adminToken = login("admin", "admin123");
+        String twoDaysAgoDate = twoDaysAgo.toLocalDate().toString();
+        Assertions.assertEquals(0.0, trendAmount(adminToken, twoDaysAgoDate), 0.001);
+
+        mockMvc.perform(post("/api/stats/income-rollup/rebuild")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("days", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data").value(1));
+
+        Assertions.assertEquals(10.0, trendAmount(adminToken, twoDaysAgoDate), 0.001);
+    }
+
+    @Test
+    void rebuildingTodayCountsLiveDonationsOnce() throws Exception {
+        jdbcTemplate.update("DELETE FROM biz_activity_donation");
+        jdbcTemplate.update("DELETE FROM biz_crowdfunding_donation");
+        jdbcTemplate.update("DELETE FROM biz_income_daily");
+
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "bob_stats", "bob123");
+        String bobToken = login("bob_stats", "bob123");
+        String activityId = createActivity(
+                adminToken,
+                "act_stats_rebuild",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+        for (int i = 0; i < 5; i++) {
+            donateActivity(bobToken, activityId, 2);
+        }
+        String today = LocalDate.now().toString();
+        Assertions.assertEquals(10.0, trendAmount(adminToken, today, "rollup"), 0.001);
+
+        mockMvc.perform(post("/api/stats/income-rollup/rebuild")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("days", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        donateActivity(bobToken, activityId, 3);
+
+        // Five donations from the raw table, the one after the rebuild from its own stripe increment.
+        Assertions.assertEquals(13.0, trendAmount(adminToken, today, "rollup"), 0.001);
+        Assertions.assertEquals(13.0, trendAmount(adminToken, today, "sql"), 0.001);
+    }
+
+    @Test
+    void emptyIncomeRollupIsBackfilledFromTheWholeHistory() throws Exception {
+        jdbcTemplate.update("DELETE FROM biz_activity_donation");
+        jdbcTemplate.update("DELETE FROM biz_crowdfunding_donation");
+        jdbcTemplate.update("DELETE FROM biz_income_daily");
+
+        LocalDateTime threeDaysAgo = LocalDate.now().minusDays(3).atTime(10, 0);
+        LocalDate longAgo = LocalDate.now().minusDays(400);
+        jdbcTemplate.update("INSERT INTO biz_activity_donation (id, activity_id, user_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                94001L, 1L, 1L, 7, threeDaysAgo);
+        jdbcTemplate.update("INSERT INTO biz_crowdfunding_donation (id, project_id, user_id, amount, is_anonymous, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", 94002L, 1L, 1L, 5, 0, longAgo.atTime(12, 0));
+
+        // What a first start after deploying the rollup does.
+        statsService.backfillRollups();
+
+        String adminToken = login("admin", "admin123");
+        Assertions.assertEquals(7.0, trendAmount(adminToken, threeDaysAgo.toLocalDate().toString(), "rollup"), 0.001);
+        Assertions.assertEquals(5.0, jdbcTemplate.queryForObject(
+                "SELECT SUM(amount) FROM biz_income_daily WHERE stat_date = ?", Double.class, longAgo), 0.001);
+
+        // A populated rollup is left alone.
+        jdbcTemplate.update("INSERT INTO biz_activity_donation (id, activity_id, user_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                94003L, 1L, 1L, 2, threeDaysAgo);
+        statsService.backfillRollups();
+        Assertions.assertEquals(7.0, trendAmount(adminToken, threeDaysAgo.toLocalDate().toString(), "rollup"), 0.001);
+    }
+
+    @Test
+    void incomeTrendEnginesAgree() throws Exception {
+        jdbcTemplate.update("DELETE FROM biz_activity_donation");
+        jdbcTemplate.update("DELETE FROM biz_crowdfunding_donation");
+        jdbcTemplate.update("DELETE FROM biz_income_daily");
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        jdbcTemplate.update("INSERT INTO biz_activity_donation (id, activity_id, user_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                92001L, 1L, 1L, 5, yesterday.atTime(9, 0));
+        jdbcTemplate.update("INSERT INTO biz_activity_donation (id, activity_id, user_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                92002L, 1L, 1L, 6, yesterday.atTime(23, 59));
+        jdbcTemplate.update("INSERT INTO biz_crowdfunding_donation (id, project_id, user_id, amount, is_anonymous, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", 92003L, 1L, 1L, 4, 0, yesterday.atTime(12, 0));
+        // Outside the 7-day window.
+        jdbcTemplate.update("INSERT INTO biz_crowdfunding_donation (id, project_id, user_id, amount, is_anonymous, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", 92004L, 1L, 1L, 100, 0, LocalDate.now().minusDays(30).atTime(12, 0));
+
+        String adminToken = login("admin", "admin123");
+        mockMvc.perform(post("/api/stats/income-rollup/rebuild")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("days", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+
+        String date = yesterday.toString();
+        Assertions.assertEquals(15.0, trendAmount(adminToken, date, "jvm"), 0.001);
+        Assertions.assertEquals(15.0, trendAmount(adminToken, date, "sql"), 0.001);
+        Assertions.assertEquals(15.0, trendAmount(adminToken, date, "rollup"), 0.001);
+
+        mockMvc.perform(get("/api/stats/income-trend")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("engine", "nope"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    void statsResultsAreCachedUntilADonationInvalidatesThem() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "cache_stats", "cache123");
+        String userToken = login("cache_stats", "cache123");
+        String activityId = createActivity(
+                adminToken,
+                "act_stats_cache",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+        donateActivity(userToken, activityId, 1);
+
+        String today = LocalDate.now().toString();
+        double before = trendAmount(adminToken, today, "sql");
+
+        // Written behind the application's back: the cached result is served.
+        jdbcTemplate.update("INSERT INTO biz_activity_donation (id, activity_id, user_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                94001L, Long.parseLong(activityId), 1L, 50, LocalDateTime.now());
+        Assertions.assertEquals(before, trendAmount(adminToken, today, "sql"), 0.001);
+
+        // A donation through the service invalidates it.
+        donateActivity(userToken, activityId, 2);
+        Assertions.assertEquals(before + 52, trendAmount(adminToken, today, "sql"), 0.001);
+    }
+
+    @Test
+    void signupRatioIsMaintainedIncrementallyAndMatchesRawSignups() throws Exception {
+        String adminToken = login("admin", "admin123");
+        createUser(adminToken, "sr_u1", "sr123456");
+        createUser(adminToken, "sr_u2", "sr123456");
+        String t1 = login("sr_u1", "sr123456");
+        String t2 = login("sr_u2", "sr123456");
+
+        String activityId = createActivity(
+                adminToken,
+                "act_signup_ratio",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(2, signupCount(adminToken, activityId, "rollup"));
+        Assertions.assertEquals(2, signupCount(adminToken, activityId, "sql"));
+
+        mockMvc.perform(put("/api/activities/" + activityId + "/signup/cancel").header("Authorization", "Bearer " + t2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(1, signupCount(adminToken, activityId, "rollup"));
+        Assertions.assertEquals(1, signupCount(adminToken, activityId, "sql"));
+
+        // Signing up again after a cancel counts once more.
+        mockMvc.perform(post("/api/activities/" + activityId + "/signup").header("Authorization", "Bearer " + t2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(2, signupCount(adminToken, activityId, "rollup"));
+
+        // A row written behind the application's back only shows up in the buckets after a rebuild.
+        jdbcTemplate.update("INSERT INTO biz_activity_signup (id, activity_id, user_id, status, signed_at) VALUES (?, ?, ?, ?, ?)",
+                93001L, Long.parseLong(activityId), 93001L, "SIGNED", LocalDateTime.now().minusHours(3).withNano(0));
+        Assertions.assertEquals(2, signupCount(adminToken, activityId, "rollup"));
+        Assertions.assertEquals(3, signupCount(adminToken, activityId, "sql"));
+
+        mockMvc.perform(post("/api/stats/signup-rollup/rebuild")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("days", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+        Assertions.assertEquals(3, signupCount(adminToken, activityId, "rollup"));
+    }
+
+    @Test
+    void emptySignupBucketsAreBackfilledFromTheWholeHistory() throws Exception {
+        String adminToken = login("admin", "admin123");
+        String activityId = createActivity(
+                adminToken,
+                "act_signup_backfill",
+                1,
+                LocalDateTime.now().plusDays(1).withNano(0),
+                LocalDateTime.now().plusDays(2).withNano(0)
+        );
+        long id = Long.parseLong(activityId);
+        jdbcTemplate.update("DELETE FROM biz_activity_signup_hourly");
+        jdbcTemplate.update("INSERT INTO biz_activity_signup (id, activity_id, user_id, status, signed_at) VALUES (?, ?, ?, ?, ?)",
+                95001L, id, 95001L, "SIGNED", LocalDateTime.now().minusHours(2).withNano(0));
+        jdbcTemplate.update("INSERT INTO biz_activity_signup (id, activity_id, user_id, status, signed_at) VALUES (?, ?, ?, ?, ?)",
+                95002L, id, 95002L, "CHECKED_IN", LocalDateTime.now().minusDays(300).withNano(0));
+        jdbcTemplate.update("INSERT INTO biz_activity_signup (id, activity_id, user_id, status, signed_at) VALUES (?, ?, ?, ?, ?)",
+                95003L, id, 95003L, "CANCELED", LocalDateTime.now().minusDays(200).withNano(0));
+
+        // What a first start after deploying the buckets does.
+        statsService.backfillRollups();
+
+        Assertions.assertEquals(1, signupCount(adminToken, activityId, "rollup"));
+        Assertions.assertEquals(1, signupCount(adminToken, activityId, "sql"));
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT SUM(signups) FROM biz_activity_signup_hourly WHERE activity_id = ?", Integer.class, id));
+    }
+
+    private long signupCount(String token, String activityId, String engine) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/stats/activity-signup-ratio")
+                        .header("Authorization", "Bearer " + token)
+                        .param("days", "7")
+                        .param("engine", engine))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        for (JsonNode item : objectMapper.readTree(result.getResponse().getContentAsString()).at("/data")) {
+            if (activityId.equals(item.at("/activityId").asText())) {
+                Assertions.assertEquals("act_signup_ratio", item.at("/activityTitle").asText());
+                return item.at("/signupCount").asLong();
+            }
+        }
+        return 0;
+    }
+
+    private double trendAmount(String token, String date) throws Exception {
+        return trendAmount(token, date, null);
+    }
+
+    private double trendAmount(String token, String date, String engine) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/stats/income-trend")
+                        .header("Authorization", "Bearer " + token)
+                        .param("days", "7")
+                        .param("engine", engine == null ? "" : engine))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        for (JsonNode item : objectMapper.readTree(result.getResponse().getContentAsString()).at("/data")) {
+            if (date.equals(item.at("/date").asText())) {
+                return item.at("/amount").asDouble();
+            }
+        }
+        throw new AssertionError("date not in trend: " + date);
+    }
+
     private String createActivity(String adminToken, String title, int enabled, LocalDateTime startTime, LocalDateTime endTime)
             throws Exception {
         String st = startTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
@@ -0,0 +1,50 @@
+package com.example.admin.service.impl;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class StatsResultCacheTest {
+
+    @Test
+    void invalidatingOneGroupKeepsTheOtherCached() {
+        StatsResultCache cache = new StatsResultCache(60_000, 256);
+        AtomicInteger income = new AtomicInteger();
+        AtomicInteger signups = new AtomicInteger();
+
+        Assertions.assertEquals(1, (int) cache.get(StatsResultCache.INCOME, "7:rollup", income::incrementAndGet));
+        Assertions.assertEquals(1, (int) cache.get(StatsResultCache.SIGNUPS, "7:rollup", signups::incrementAndGet));
+
+        cache.invalidate(StatsResultCache.INCOME);
+        Assertions.assertEquals(2, (int) cache.get(StatsResultCache.INCOME, "7:rollup", income::incrementAndGet));
+        Assertions.assertEquals(1, (int) cache.get(StatsResultCache.SIGNUPS, "7:rollup", signups::incrementAndGet));
+
+        cache.invalidate();
+        Assertions.assertEquals(3, (int) cache.get(StatsResultCache.INCOME, "7:rollup", income::incrementAndGet));
+        Assertions.assertEquals(2, (int) cache.get(StatsResultCache.SIGNUPS, "7:rollup", signups::incrementAndGet));
+    }
+
+    @Test
+    void invalidationInsideATransactionWaitsForTheCommit() {
+        StatsResultCache cache = new StatsResultCache(60_000, 256);
+        AtomicInteger income = new AtomicInteger();
+        cache.get(StatsResultCache.INCOME, "7:rollup", income::incrementAndGet);
+
+        List<TransactionSynchronization> tx;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(StatsResultCache.INCOME);
+            // Not committed: other readers still see the old data, so the cached result stands.
+            Assertions.assertEquals(1, (int) cache.get(StatsResultCache.INCOME, "7:rollup", income::incrementAndGet));
+            tx = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        tx.forEach(TransactionSynchronization::afterCommit);
+        Assertions.assertEquals(2, (int) cache.get(StatsResultCache.INCOME, "7:rollup", income::incrementAndGet));
+    }
+}
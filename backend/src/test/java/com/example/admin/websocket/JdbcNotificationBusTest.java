@@ -0,0 +1,84 @@
+package com.example.admin.websocket;
+
+import com.example.admin.mapper.SysWsEventMapper;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+/**
+ * Two bus instances on the same database stand in for two nodes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class JdbcNotificationBusTest {
+
+    @Autowired
+    private SysWsEventMapper eventMapper;
+
+    @Test
+    void eventsPublishedOnOneNodeAreDeliveredExactlyOnceOnTheOther() throws Exception {
+        WebSocketSessionManager sessionsA = sessionManager();
+        WebSocketSessionManager sessionsB = sessionManager();
+        JdbcNotificationBus nodeA = new JdbcNotificationBus(eventMapper, sessionsA, 20, 2000, 60_000);
+        JdbcNotificationBus nodeB = new JdbcNotificationBus(eventMapper, sessionsB, 20, 2000, 60_000);
+        nodeA.start();
+        nodeB.start();
+        try {
+            BlockingQueue<String> onB = new LinkedBlockingQueue<>();
+            sessionsB.addSession(910_001L, session("bus-b-1", onB));
+            BlockingQueue<String> otherUserOnA = new LinkedBlockingQueue<>();
+            sessionsA.addSession(910_002L, session("bus-a-1", otherUserOnA));
+
+            nodeA.sendToUser(910_001L, "to-user");
+            Assertions.assertEquals("to-user", onB.poll(5, TimeUnit.SECONDS));
+
+            nodeA.broadcast("to-all");
+            Assertions.assertEquals("to-all", onB.poll(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("to-all", otherUserOnA.poll(5, TimeUnit.SECONDS));
+
+            // Dozens of further polls on both nodes, all inside the overlap window: nothing is delivered again.
+            Thread.sleep(500);
+            Assertions.assertNull(onB.poll());
+            Assertions.assertNull(otherUserOnA.poll());
+        } finally {
+            nodeA.stop();
+            nodeB.stop();
+            sessionsA.stop();
+            sessionsB.stop();
+        }
+    }
+
+    private static WebSocketSessionManager sessionManager() {
+        return new WebSocketSessionManager(10_000, 1 << 20, OverflowStrategy.TERMINATE, 1000, 2);
+    }
+
+    private static WebSocketSession session(String id, BlockingQueue<String> received) {
+        HashMap<String, Object> attributes = new HashMap<>();
+        return (WebSocketSession) Proxy.newProxyInstance(
+                WebSocketSession.class.getClassLoader(),
+                new Class<?>[] {WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "getAttributes" -> attributes;
+                    case "sendMessage" -> {
+                        received.add(((TextMessage) args[0]).getPayload());
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "Session[" + id + "]";
+                    default -> null;
+                });
+    }
+}
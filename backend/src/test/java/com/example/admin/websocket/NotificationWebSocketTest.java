@@ -6,6 +6,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -105,6 +107,155 @@ class NotificationWebSocketTest {
         }
     }
 
+    @Test
+    void onlineUsersReceiveAnnouncementWithCreationTime() throws Exception {
+        String adminToken = login("admin", "admin123");
+        String username = unique("ws_live");
+        createUser(adminToken, username, "pwd123");
+        String userToken = login(username, "pwd123");
+
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        WebSocketSession session = connect(userToken, messages);
+        try {
+            awaitType(messages, "init");
+
+            String title = "live_" + UUID.randomUUID();
+            mockMvc.perform(post("/api/notifications/announce")
+                            .header("Authorization", "Bearer " + adminToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"title\":\"" + title + "\",\"content\":\"content\"}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(0));
+
+            JsonNode pushed = awaitType(messages, "notification");
+            org.junit.jupiter.api.Assertions.assertEquals(title, pushed.at("/data/title").asText());
+            org.junit.jupiter.api.Assertions.assertFalse(pushed.at("/data/createdAt").isMissingNode());
+            org.junit.jupiter.api.Assertions.assertFalse(pushed.at("/data/createdAt").isNull());
+        } finally {
+            closeQuietly(session);
+        }
+    }
+
+    @Test
+    void statsSubscribersGetSnapshotThenDeltas() throws Exception {
+        String adminToken = login("admin", "admin123");
+        String username = unique("ws_stats");
+        createUser(adminToken, username, "pwd123");
+        String userToken = login(username, "pwd123");
+        String activityId = createActivity(adminToken);
+
+        BlockingQueue<String> adminMessages = new LinkedBlockingQueue<>();
+        WebSocketSession adminSession = connect(adminToken, adminMessages);
+        BlockingQueue<String> userMessages = new LinkedBlockingQueue<>();
+        WebSocketSession userSession = connect(userToken, userMessages);
+        try {
+            adminSession.sendMessage(new TextMessage("{\"type\":\"subscribe\",\"topic\":\"stats\"}"));
+            JsonNode snapshot = awaitType(adminMessages, "stats.snapshot");
+            org.junit.jupiter.api.Assertions.assertEquals(7, snapshot.at("/data/incomeTrend").size());
+
+            // Without stats:view the subscription is refused.
+            userSession.sendMessage(new TextMessage("{\"type\":\"subscribe\",\"topic\":\"stats\"}"));
+            awaitType(userMessages, "error");
+
+            mockMvc.perform(post("/api/activities/" + activityId + "/donations")
+                            .header("Authorization", "Bearer " + userToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"amount\":12}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(0));
+            JsonNode income = awaitType(adminMessages, "stats.delta");
+            org.junit.jupiter.api.Assertions.assertEquals("income", income.at("/data/kind").asText());
+            org.junit.jupiter.api.Assertions.assertEquals(12.0, income.at("/data/amount").asDouble(), 0.001);
+            // Numbered after the snapshot, so the client folds it in.
+            org.junit.jupiter.api.Assertions.assertEquals(
+                    snapshot.at("/data/stream").asText(), income.at("/data/stream").asText());
+            org.junit.jupiter.api.Assertions.assertTrue(
+                    income.at("/data/seq").asLong() > snapshot.at("/data/seq").asLong());
+
+            mockMvc.perform(post("/api/activities/" + activityId + "/signup")
+                            .header("Authorization", "Bearer " + userToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(0));
+            JsonNode signup = awaitType(adminMessages, "stats.delta");
+            org.junit.jupiter.api.Assertions.assertEquals("signup", signup.at("/data/kind").asText());
+            org.junit.jupiter.api.Assertions.assertEquals(activityId, signup.at("/data/activityId").asText());
+            org.junit.jupiter.api.Assertions.assertEquals(1, signup.at("/data/delta").asInt());
+            org.junit.jupiter.api.Assertions.assertFalse(signup.at("/data/signedAt").asText().isEmpty());
+            org.junit.jupiter.api.Assertions.assertEquals(
+                    income.at("/data/seq").asLong() + 1, signup.at("/data/seq").asLong());
+
+            org.junit.jupiter.api.Assertions.assertNull(pollType(userMessages, "stats.delta", 500));
+        } finally {
+            closeQuietly(adminSession);
+            closeQuietly(userSession);
+        }
+    }
+
+    private WebSocketSession connect(String token, BlockingQueue<String> messages) throws Exception {
+        TextWebSocketHandler handler = new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                messages.add(message.getPayload());
+            }
+        };
+        String url = "ws://localhost:" + port + "/ws/notification?token=" + token;
+        return new StandardWebSocketClient()
+                .execute(handler, new WebSocketHttpHeaders(), java.net.URI.create(url))
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    private JsonNode awaitType(BlockingQueue<String> messages, String type) throws Exception {
+        JsonNode json = pollType(messages, type, 5000);
+        org.junit.jupiter.api.Assertions.assertNotNull(json, "no " + type + " message");
+        return json;
+    }
+
+    private JsonNode pollType(BlockingQueue<String> messages, String type, long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            String payload = messages.poll(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (payload == null) {
+                return null;
+            }
+            JsonNode json = objectMapper.readTree(payload);
+            if (type.equals(json.at("/type").asText())) {
+                return json;
+            }
+        }
+    }
+
+    private void closeQuietly(WebSocketSession session) {
+        try {
+            session.close();
+        } catch (Exception ignored) {
+            // ignore
+        }
+    }
+
+    private String createActivity(String token) throws Exception {
+        String st = LocalDateTime.now().plusDays(1).withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        String et = LocalDateTime.now().plusDays(2).withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        String payload = "{"
+                + "\"title\":\"" + unique("ws_act") + "\","
+                + "\"coverFileId\":5001,"
+                + "\"content\":\"<p>hi</p>\","
+                + "\"startTime\":\"" + st + "\","
+                + "\"endTime\":\"" + et + "\","
+                + "\"signupEnabled\":1,"
+                + "\"donateEnabled\":1,"
+                + "\"maxParticipants\":5,"
+                + "\"enabled\":1"
+                + "}";
+        MvcResult result = mockMvc.perform(post("/api/activities")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).at("/data/id").asText();
+    }
+
     private void createUser(String token, String username, String password) throws Exception {
         mockMvc.perform(post("/api/users")
                         .header("Authorization", "Bearer " + token)
@@ -0,0 +1,160 @@
+package com.example.admin.websocket;
+
+import com.example.admin.dto.stats.ActivitySignupRatioDto;
+import com.example.admin.dto.stats.IncomeTrendDto;
+import com.example.admin.dto.stats.StatsSnapshotDto;
+import com.example.admin.service.StatsService;
+import com.example.admin.service.impl.NotificationOutbox;
+import com.example.admin.service.impl.StatsLiveFeed;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class StatsLiveFeedTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void reloadBetweenCommitAndDeliveryCountsTheDonationOnce() throws Exception {
+        StubStats stats = new StubStats();
+        RecordingBus bus = new RecordingBus();
+        NotificationOutbox outbox = new NotificationOutbox(bus);
+        StatsLiveFeed feed = new StatsLiveFeed(stats, outbox, bus, objectMapper, 7, 60_000);
+        try {
+            List<TransactionSynchronization> tx = inTransaction(() -> feed.donation(new BigDecimal("5")));
+            tx.forEach(s -> s.beforeCommit(false));
+            // The donation is committed: a reload from the database sees it.
+            stats.today.set(new BigDecimal("5"));
+
+            CompletableFuture<StatsSnapshotDto> reload = CompletableFuture.supplyAsync(feed::snapshot);
+            Thread.sleep(200);
+            Assertions.assertFalse(reload.isDone(), "reload ran before the committed delta was numbered");
+            tx.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            StatsSnapshotDto snapshot = reload.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(0, new BigDecimal("5").compareTo(today(snapshot)));
+            Assertions.assertEquals(1L, snapshot.getSeq());
+
+            JsonNode delta = objectMapper.readTree(bus.published.poll(5, TimeUnit.SECONDS)).at("/data");
+            Assertions.assertEquals(1L, delta.at("/seq").asLong());
+            Assertions.assertEquals(0, new BigDecimal("5").compareTo(today(feed.snapshot())));
+
+            // A donation committed after the reload is folded in.
+            List<TransactionSynchronization> next = inTransaction(() -> feed.donation(new BigDecimal("3")));
+            next.forEach(s -> s.beforeCommit(false));
+            next.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            Assertions.assertNotNull(bus.published.poll(5, TimeUnit.SECONDS));
+            StatsSnapshotDto after = feed.snapshot();
+            Assertions.assertEquals(0, new BigDecimal("8").compareTo(today(after)));
+            Assertions.assertEquals(2L, after.getSeq());
+
+            // Rolled back: neither numbered nor delivered.
+            List<TransactionSynchronization> rolledBack = inTransaction(() -> feed.donation(new BigDecimal("4")));
+            rolledBack.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            Assertions.assertNull(bus.published.poll(300, TimeUnit.MILLISECONDS));
+            Assertions.assertEquals(2L, feed.snapshot().getSeq());
+        } finally {
+            outbox.stop();
+        }
+    }
+
+    private static List<TransactionSynchronization> inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static BigDecimal today(StatsSnapshotDto snapshot) {
+        String date = LocalDate.now().toString();
+        return snapshot.getIncomeTrend().stream()
+                .filter(item -> date.equals(item.getDate()))
+                .findFirst()
+                .orElseThrow()
+                .getAmount();
+    }
+
+    private static final class StubStats implements StatsService {
+        final AtomicReference<BigDecimal> today = new AtomicReference<>(BigDecimal.ZERO);
+
+        @Override
+        public List<ActivitySignupRatioDto> activitySignupRatio(int days) {
+            return List.of();
+        }
+
+        @Override
+        public List<ActivitySignupRatioDto> activitySignupRatio(int days, String engine) {
+            return List.of();
+        }
+
+        @Override
+        public List<IncomeTrendDto> incomeTrend(int days) {
+            return freshIncomeTrend(days);
+        }
+
+        @Override
+        public List<IncomeTrendDto> incomeTrend(int days, String engine) {
+            return freshIncomeTrend(days);
+        }
+
+        @Override
+        public List<ActivitySignupRatioDto> freshActivitySignupRatio(int days) {
+            return List.of();
+        }
+
+        @Override
+        public List<IncomeTrendDto> freshIncomeTrend(int days) {
+            List<IncomeTrendDto> out = new ArrayList<>();
+            LocalDate end = LocalDate.now();
+            for (LocalDate date = end.minusDays(days - 1L); !date.isAfter(end); date = date.plusDays(1)) {
+                IncomeTrendDto item = new IncomeTrendDto();
+                item.setDate(date.toString());
+                item.setAmount(date.equals(end) ? today.get() : BigDecimal.ZERO);
+                out.add(item);
+            }
+            return out;
+        }
+
+        @Override
+        public int rebuildIncomeRollup(int days) {
+            return 0;
+        }
+
+        @Override
+        public int rebuildSignupBuckets(int days) {
+            return 0;
+        }
+    }
+
+    private static final class RecordingBus implements NotificationBus {
+        final BlockingQueue<String> published = new LinkedBlockingQueue<>();
+
+        @Override
+        public void sendToUser(Long userId, String payload) {
+        }
+
+        @Override
+        public void broadcast(String payload) {
+        }
+
+        @Override
+        public void publish(String topic, String payload) {
+            published.add(payload);
+        }
+    }
+}
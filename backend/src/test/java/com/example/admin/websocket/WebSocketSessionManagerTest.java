@@ -0,0 +1,190 @@
+package com.example.admin.websocket;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+class WebSocketSessionManagerTest {
+
+    @Test
+    void stalledSessionIsClosedWhileOtherUsersKeepReceiving() throws Exception {
+        WebSocketSessionManager manager = new WebSocketSessionManager(300, 1 << 20, OverflowStrategy.TERMINATE, 100, 2);
+        try {
+            StubSession stalled = StubSession.stalled("s-stalled");
+            StubSession alice = StubSession.healthy("s-alice");
+            StubSession bob = StubSession.healthy("s-bob");
+            manager.addSession(1L, stalled.session());
+            manager.addSession(2L, alice.session());
+            manager.addSession(3L, bob.session());
+
+            manager.broadcast("m0");
+            Assertions.assertTrue(stalled.sendStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < 5; i++) {
+                manager.broadcast("m" + i);
+            }
+
+            // The stuck write holds one sender thread; the other users are not behind it.
+            Assertions.assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), alice.take(5));
+            Assertions.assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), bob.take(5));
+
+            // The watchdog gives up on the stuck write after send-time-limit-ms.
+            Assertions.assertEquals(CloseStatus.SESSION_NOT_RELIABLE, stalled.awaitClose());
+            Assertions.assertFalse(manager.isOnline(1L));
+            Assertions.assertEquals(1, manager.metrics().sessionsClosed());
+
+            manager.sendToUser(2L, "after");
+            Assertions.assertEquals(List.of("after"), alice.take(1));
+        } finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    void fullBufferDisconnectsTheSessionUnderTerminate() throws Exception {
+        WebSocketSessionManager manager = new WebSocketSessionManager(60_000, 1000, OverflowStrategy.TERMINATE, 1000, 2);
+        try {
+            StubSession stalled = StubSession.stalled("s-stalled");
+            StubSession alice = StubSession.healthy("s-alice");
+            manager.addSession(1L, stalled.session());
+            manager.addSession(2L, alice.session());
+
+            // Alice reads each message before the next one is sent, so only the stalled queue fills up.
+            String payload = "x".repeat(400);
+            manager.broadcast(payload);
+            Assertions.assertTrue(stalled.sendStarted.await(5, TimeUnit.SECONDS));
+            alice.take(1);
+            // Two more fit into the 1000-byte queue, the third does not.
+            manager.broadcast(payload);
+            alice.take(1);
+            manager.broadcast(payload);
+            alice.take(1);
+            Assertions.assertTrue(stalled.isOpen());
+            manager.broadcast(payload);
+            alice.take(1);
+
+            Assertions.assertEquals(CloseStatus.SESSION_NOT_RELIABLE, stalled.awaitClose());
+            Assertions.assertFalse(manager.isOnline(1L));
+            Assertions.assertTrue(manager.isOnline(2L));
+            Assertions.assertEquals(1, manager.metrics().sessionsClosed());
+            // The overflowing message plus the two still queued.
+            Assertions.assertEquals(3, manager.metrics().messagesDropped());
+        } finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    void fullBufferDropsOldestMessagesUnderDrop() throws Exception {
+        WebSocketSessionManager manager = new WebSocketSessionManager(60_000, 1000, OverflowStrategy.DROP, 1000, 2);
+        try {
+            StubSession stalled = StubSession.stalled("s-stalled");
+            manager.addSession(1L, stalled.session());
+
+            manager.sendToUser(1L, "a".repeat(400));
+            Assertions.assertTrue(stalled.sendStarted.await(5, TimeUnit.SECONDS));
+            manager.sendToUser(1L, "b".repeat(400));
+            manager.sendToUser(1L, "c".repeat(400));
+            manager.sendToUser(1L, "d".repeat(400));
+            manager.sendToUser(1L, "e".repeat(400));
+            Assertions.assertEquals(2, manager.metrics().messagesDropped());
+
+            stalled.release.countDown();
+            List<String> received = stalled.take(3);
+            Assertions.assertEquals(List.of('a', 'd', 'e'), received.stream().map(m -> m.charAt(0)).toList());
+            Assertions.assertTrue(stalled.isOpen());
+            Assertions.assertTrue(manager.isOnline(1L));
+        } finally {
+            manager.stop();
+        }
+    }
+
+    /**
+     * WebSocketSession whose sendMessage either returns at once or blocks until released or closed (a client that
+     * stopped reading).
+     */
+    private static final class StubSession {
+
+        private final String id;
+        private final CountDownLatch release;
+        private final CountDownLatch sendStarted = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private volatile CloseStatus closeStatus;
+
+        private StubSession(String id, boolean stalled) {
+            this.id = id;
+            this.release = new CountDownLatch(stalled ? 1 : 0);
+        }
+
+        static StubSession stalled(String id) {
+            return new StubSession(id, true);
+        }
+
+        static StubSession healthy(String id) {
+            return new StubSession(id, false);
+        }
+
+        boolean isOpen() {
+            return closed.getCount() > 0;
+        }
+
+        CloseStatus awaitClose() throws InterruptedException {
+            Assertions.assertTrue(closed.await(5, TimeUnit.SECONDS), "session " + id + " was not closed");
+            return closeStatus;
+        }
+
+        List<String> take(int count) throws InterruptedException {
+            List<String> messages = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String message = received.poll(5, TimeUnit.SECONDS);
+                Assertions.assertNotNull(message, "session " + id + " received only " + messages);
+                messages.add(message);
+            }
+            return messages;
+        }
+
+        WebSocketSession session() {
+            return (WebSocketSession) Proxy.newProxyInstance(
+                    WebSocketSession.class.getClassLoader(),
+                    new Class<?>[] {WebSocketSession.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> id;
+                        case "isOpen" -> isOpen();
+                        case "getAttributes" -> attributes;
+                        case "sendMessage" -> {
+                            sendStarted.countDown();
+                            release.await();
+                            if (!isOpen()) {
+                                throw new IOException("closed while sending");
+                            }
+                            received.add(((TextMessage) args[0]).getPayload());
+                            yield null;
+                        }
+                        case "close" -> {
+                            closeStatus = args == null || args.length == 0 ? CloseStatus.NORMAL : (CloseStatus) args[0];
+                            closed.countDown();
+                            release.countDown();
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "StubSession[" + id + "]";
+                        default -> null;
+                    });
+        }
+    }
+}
@@ -49,6 +49,7 @@ MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES
 MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES (163, 'activityDonation:list', '活动捐赠记录', '查看活动捐赠记录', 0);
 MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES (164, 'activityFavorite:list', '活动收藏记录', '查看活动收藏记录', 0);
 MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES (165, 'stats:view', '数据统计', '查看统计数据', 0);
+MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES (166, 'stats:manage', '统计维护', '重建统计汇总数据', 0);
 
 MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES (170, 'crowdfunding:list', '众筹项目列表', '查看众筹项目列表', 0);
 MERGE INTO sys_permission (id, code, name, description, deleted) KEY(id) VALUES (171, 'crowdfunding:manage', '众筹项目管理', '管理众筹项目（编辑/删除）', 0);
@@ -93,6 +94,7 @@ MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2062
 MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2063, 10, 163);
 MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2064, 10, 164);
 MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2065, 10, 165);
+MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2066, 10, 166);
 
 MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2070, 10, 170);
 MERGE INTO sys_role_permission (id, role_id, permission_id) KEY(id) VALUES (2071, 10, 171);
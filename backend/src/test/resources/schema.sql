@@ -61,11 +61,19 @@ CREATE UNIQUE INDEX IF NOT EXISTS uk_sys_role_permission ON sys_role_permission(
 CREATE INDEX IF NOT EXISTS idx_sys_role_permission_role_id ON sys_role_permission(role_id);
 CREATE INDEX IF NOT EXISTS idx_sys_role_permission_permission_id ON sys_role_permission(permission_id);
 
+CREATE TABLE IF NOT EXISTS sys_rbac_version (
+  id TINYINT NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
 CREATE TABLE IF NOT EXISTS sys_file (
   id BIGINT NOT NULL,
   original_name VARCHAR(255) NOT NULL,
   stored_name VARCHAR(255) NOT NULL,
   path VARCHAR(512) NOT NULL,
+  object_id BIGINT DEFAULT NULL,
   size BIGINT NOT NULL,
   content_type VARCHAR(128) DEFAULT NULL,
   visibility VARCHAR(16) NOT NULL DEFAULT 'PRIVATE',
@@ -74,10 +82,23 @@ CREATE TABLE IF NOT EXISTS sys_file (
   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id)
 );
-CREATE UNIQUE INDEX IF NOT EXISTS uk_sys_file_path ON sys_file(path);
+CREATE INDEX IF NOT EXISTS idx_sys_file_path ON sys_file(path);
+CREATE INDEX IF NOT EXISTS idx_sys_file_object_id ON sys_file(object_id);
 CREATE INDEX IF NOT EXISTS idx_sys_file_user_id ON sys_file(user_id);
 CREATE INDEX IF NOT EXISTS idx_sys_file_visibility ON sys_file(visibility);
 
+CREATE TABLE IF NOT EXISTS sys_file_object (
+  id BIGINT NOT NULL,
+  sha256 CHAR(64) NOT NULL,
+  size BIGINT NOT NULL,
+  path VARCHAR(512) NOT NULL,
+  ref_count INT NOT NULL DEFAULT 0,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sys_file_object_sha256 ON sys_file_object(sha256);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sys_file_object_path ON sys_file_object(path);
+
 CREATE TABLE IF NOT EXISTS sys_notification (
   id BIGINT NOT NULL,
   user_id BIGINT NOT NULL,
@@ -90,6 +111,37 @@ CREATE TABLE IF NOT EXISTS sys_notification (
 );
 CREATE INDEX IF NOT EXISTS idx_sys_notification_user_created ON sys_notification(user_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_sys_notification_user_read ON sys_notification(user_id, is_read);
+CREATE INDEX IF NOT EXISTS idx_sys_notification_user_id ON sys_notification(user_id, id);
+
+CREATE TABLE IF NOT EXISTS sys_announcement (
+  id BIGINT NOT NULL,
+  title VARCHAR(255) NOT NULL,
+  content TEXT NOT NULL,
+  created_by BIGINT DEFAULT NULL,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE INDEX IF NOT EXISTS idx_sys_announcement_created_at ON sys_announcement(created_at);
+
+CREATE TABLE IF NOT EXISTS sys_announcement_read (
+  id BIGINT NOT NULL,
+  announcement_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sys_announcement_read ON sys_announcement_read(announcement_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_sys_announcement_read_user_id ON sys_announcement_read(user_id);
+
+CREATE TABLE IF NOT EXISTS sys_ws_event (
+  id BIGINT NOT NULL,
+  user_id BIGINT DEFAULT NULL,
+  topic VARCHAR(32) DEFAULT NULL,
+  payload TEXT NOT NULL,
+  created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (id)
+);
+CREATE INDEX IF NOT EXISTS idx_sys_ws_event_created_at ON sys_ws_event(created_at);
 
 CREATE TABLE IF NOT EXISTS sys_message (
   id BIGINT NOT NULL,
@@ -134,6 +186,7 @@ CREATE TABLE IF NOT EXISTS biz_activity (
   max_participants INT DEFAULT NULL,
   donation_target DECIMAL(12,2) DEFAULT NULL,
   donated_amount DECIMAL(12,2) NOT NULL DEFAULT 0,
+  signup_count INT DEFAULT NULL,
   enabled TINYINT NOT NULL DEFAULT 1,
   deleted TINYINT NOT NULL DEFAULT 0,
   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -154,10 +207,19 @@ CREATE TABLE IF NOT EXISTS biz_activity_signup (
   PRIMARY KEY (id)
 );
 CREATE UNIQUE INDEX IF NOT EXISTS uk_biz_activity_signup ON biz_activity_signup(activity_id, user_id);
-CREATE INDEX IF NOT EXISTS idx_biz_activity_signup_activity_id ON biz_activity_signup(activity_id);
+CREATE INDEX IF NOT EXISTS idx_biz_activity_signup_activity_id ON biz_activity_signup(activity_id, signed_at);
 CREATE INDEX IF NOT EXISTS idx_biz_activity_signup_user_id ON biz_activity_signup(user_id);
 CREATE INDEX IF NOT EXISTS idx_biz_activity_signup_signed_at ON biz_activity_signup(signed_at);
 
+CREATE TABLE IF NOT EXISTS biz_activity_signup_hourly (
+  activity_id BIGINT NOT NULL,
+  bucket_hour TIMESTAMP NOT NULL,
+  signups INT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (activity_id, bucket_hour)
+);
+CREATE INDEX IF NOT EXISTS idx_biz_activity_signup_hourly_bucket_hour ON biz_activity_signup_hourly(bucket_hour);
+
 CREATE TABLE IF NOT EXISTS biz_activity_donation (
   id BIGINT NOT NULL,
   activity_id BIGINT NOT NULL,
@@ -167,10 +229,28 @@ CREATE TABLE IF NOT EXISTS biz_activity_donation (
   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id)
 );
-CREATE INDEX IF NOT EXISTS idx_biz_activity_donation_activity_id ON biz_activity_donation(activity_id);
+CREATE INDEX IF NOT EXISTS idx_biz_activity_donation_activity_id ON biz_activity_donation(activity_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_biz_activity_donation_user_id ON biz_activity_donation(user_id);
 CREATE INDEX IF NOT EXISTS idx_biz_activity_donation_created_at ON biz_activity_donation(created_at);
 
+CREATE TABLE IF NOT EXISTS biz_income_daily (
+  stat_date DATE NOT NULL,
+  stripe_no INT NOT NULL DEFAULT 0,
+  amount DECIMAL(14,2) NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (stat_date, stripe_no)
+);
+
+CREATE TABLE IF NOT EXISTS biz_activity_donation_stripe (
+  id BIGINT NOT NULL,
+  activity_id BIGINT NOT NULL,
+  stripe_no INT NOT NULL,
+  amount DECIMAL(12,2) NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_biz_activity_donation_stripe ON biz_activity_donation_stripe(activity_id, stripe_no);
+
 CREATE TABLE IF NOT EXISTS biz_activity_favorite (
   id BIGINT NOT NULL,
   activity_id BIGINT NOT NULL,
@@ -179,7 +259,7 @@ CREATE TABLE IF NOT EXISTS biz_activity_favorite (
   PRIMARY KEY (id)
 );
 CREATE UNIQUE INDEX IF NOT EXISTS uk_biz_activity_favorite ON biz_activity_favorite(activity_id, user_id);
-CREATE INDEX IF NOT EXISTS idx_biz_activity_favorite_activity_id ON biz_activity_favorite(activity_id);
+CREATE INDEX IF NOT EXISTS idx_biz_activity_favorite_activity_id ON biz_activity_favorite(activity_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_biz_activity_favorite_user_id ON biz_activity_favorite(user_id);
 CREATE INDEX IF NOT EXISTS idx_biz_activity_favorite_created_at ON biz_activity_favorite(created_at);
 
@@ -214,7 +294,7 @@ CREATE TABLE IF NOT EXISTS biz_crowdfunding_donation (
   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id)
 );
-CREATE INDEX IF NOT EXISTS idx_biz_cf_donation_project_id ON biz_crowdfunding_donation(project_id);
+CREATE INDEX IF NOT EXISTS idx_biz_cf_donation_project_id ON biz_crowdfunding_donation(project_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_biz_cf_donation_user_id ON biz_crowdfunding_donation(user_id);
 CREATE INDEX IF NOT EXISTS idx_biz_cf_donation_created_at ON biz_crowdfunding_donation(created_at);
 
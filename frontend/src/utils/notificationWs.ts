@@ -1,17 +1,25 @@
 import { ElNotification } from 'element-plus'
 
-type WsMessage = { type?: string; data?: any }
+export type WsMessage = { type?: string; data?: any }
+type StatsListener = (msg: WsMessage) => void
 
 let ws: WebSocket | null = null
 let manualClose = false
 let lastToken = ''
 let reconnectTimer: number | null = null
+const statsListeners = new Set<StatsListener>()
 
 function buildWsUrl(token: string) {
   const scheme = window.location.protocol === 'https:' ? 'wss' : 'ws'
   return `${scheme}://${window.location.host}/ws/notification?token=${encodeURIComponent(token)}`
 }
 
+function sendCommand(type: 'subscribe' | 'unsubscribe', topic: string) {
+  if (ws && ws.readyState === WebSocket.OPEN) {
+    ws.send(JSON.stringify({ type, topic }))
+  }
+}
+
 function clearReconnectTimer() {
   if (reconnectTimer != null) {
     window.clearTimeout(reconnectTimer)
@@ -33,9 +41,18 @@ export function connectNotificationWs(token: string) {
 
   ws = new WebSocket(buildWsUrl(token))
 
+  ws.onopen = () => {
+    // (Re)subscribe after connect / reconnect; the server answers with a fresh snapshot.
+    if (statsListeners.size > 0) sendCommand('subscribe', 'stats')
+  }
+
   ws.onmessage = (ev) => {
     try {
       const msg = JSON.parse(String(ev.data)) as WsMessage
+      if (msg.type?.startsWith('stats.')) {
+        statsListeners.forEach((listener) => listener(msg))
+        return
+      }
       if (msg.type === 'init' && Array.isArray(msg.data) && msg.data.length > 0) {
         ElNotification({
           title: '未读通知',
@@ -85,3 +102,14 @@ export function disconnectNotificationWs() {
   }
 }
 
+/**
+ * Live stats: the listener gets a "stats.snapshot" and then "stats.delta" messages. Returns the unsubscribe function.
+ */
+export function subscribeStats(listener: StatsListener) {
+  statsListeners.add(listener)
+  sendCommand('subscribe', 'stats')
+  return () => {
+    statsListeners.delete(listener)
+    if (statsListeners.size === 0) sendCommand('unsubscribe', 'stats')
+  }
+}